@@ -14,20 +14,107 @@ package com.threecrickets.jvm.json;
 import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.threecrickets.jvm.json.generic.NullEncoder;
+import com.threecrickets.jvm.json.internal.Registry;
 
 /**
  * A convenient base class for JSON implementations with common functionality.
  * <p>
  * Note that you do <i>not</i> have to extend this class for your
  * implementation, you just need to implement {@link JsonImplementation}.
+ * <p>
+ * Encoders and transformers can be added and removed at runtime, even while
+ * other threads are encoding and decoding: these threads always see an
+ * immutable snapshot, without locking.
  * 
  * @author Tal Liron
  */
 public abstract class BaseJsonImplementation implements JsonImplementation
 {
+	//
+	// Construction
+	//
+
+	/**
+	 * Constructor.
+	 */
+	public BaseJsonImplementation()
+	{
+		encoders = encoderRegistry;
+		transformers = transformerRegistry;
+	}
+
+	//
+	// Operations
+	//
+
+	/**
+	 * Adds an encoder. Encoders with higher priorities are tried first.
+	 * Encoders with equal priorities are tried in the order in which they
+	 * were added. The built-in encoders have priority 0.
+	 * 
+	 * @param encoder
+	 *        The encoder
+	 * @param priority
+	 *        The priority
+	 */
+	public void addEncoder( JsonEncoder encoder, int priority )
+	{
+		encoderRegistry.add( encoder, priority );
+	}
+
+	/**
+	 * Removes an encoder.
+	 * 
+	 * @param encoder
+	 *        The encoder
+	 * @return True if removed
+	 */
+	public boolean removeEncoder( JsonEncoder encoder )
+	{
+		return encoders.remove( encoder );
+	}
+
+	/**
+	 * Adds a transformer. Transformers with higher priorities are tried
+	 * first. Transformers with equal priorities are tried in the order in
+	 * which they were added. The built-in transformers have priority 0.
+	 * 
+	 * @param transformer
+	 *        The transformer
+	 * @param priority
+	 *        The priority
+	 */
+	public void addTransformer( JsonTransformer transformer, int priority )
+	{
+		transformerRegistry.add( transformer, priority );
+	}
+
+	/**
+	 * Removes a transformer.
+	 * 
+	 * @param transformer
+	 *        The transformer
+	 * @return True if removed
+	 */
+	public boolean removeTransformer( JsonTransformer transformer )
+	{
+		return transformers.remove( transformer );
+	}
+
+	/**
+	 * Incremented whenever encoders or transformers are added or removed. Can
+	 * be used to invalidate caches derived from them.
+	 * 
+	 * @return The version
+	 */
+	public int getRegistryVersion()
+	{
+		return registryVersion.get();
+	}
+
 	//
 	// JsonImplementation
 	//
@@ -53,7 +140,7 @@ public abstract class BaseJsonImplementation implements JsonImplementation
 
 	public Collection<JsonEncoder> getEncoders()
 	{
-		return Collections.unmodifiableCollection( encoders );
+		return encodersView;
 	}
 
 	public JsonEncoder getFallbackEncoder()
@@ -63,18 +150,36 @@ public abstract class BaseJsonImplementation implements JsonImplementation
 
 	public Collection<JsonTransformer> getTransformers()
 	{
-		return Collections.unmodifiableCollection( transformers );
+		return transformersView;
 	}
 
 	// //////////////////////////////////////////////////////////////////////////
 	// Protected
 
-	protected final ArrayList<JsonEncoder> encoders = new ArrayList<JsonEncoder>();
+	/**
+	 * The encoders. Entries added via {@link ArrayList#add(Object)} have
+	 * priority 0.
+	 */
+	protected final ArrayList<JsonEncoder> encoders;
 
-	protected final ArrayList<JsonTransformer> transformers = new ArrayList<JsonTransformer>();
+	/**
+	 * The transformers. Entries added via {@link ArrayList#add(Object)} have
+	 * priority 0.
+	 */
+	protected final ArrayList<JsonTransformer> transformers;
 
 	// //////////////////////////////////////////////////////////////////////////
 	// Private
 
+	private final AtomicInteger registryVersion = new AtomicInteger();
+
+	private final Registry<JsonEncoder> encoderRegistry = new Registry<JsonEncoder>( registryVersion );
+
+	private final Registry<JsonTransformer> transformerRegistry = new Registry<JsonTransformer>( registryVersion );
+
+	private final Collection<JsonEncoder> encodersView = encoderRegistry.getReadOnly();
+
+	private final Collection<JsonTransformer> transformersView = transformerRegistry.getReadOnly();
+
 	private final JsonEncoder fallbackEncoder = new NullEncoder();
 }
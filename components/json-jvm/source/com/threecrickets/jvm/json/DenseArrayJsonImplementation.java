@@ -0,0 +1,35 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+
+package com.threecrickets.jvm.json;
+
+/**
+ * An implementation that can create an array from all its elements at once.
+ * <p>
+ * The {@link JsonDecoder} collects the elements of each array before creating
+ * it, so if the implementation supports this interface it is used instead of
+ * {@link #createArray(int)} followed by a {@link #setInArray} for each element.
+ * 
+ * @author Tal Liron
+ */
+public interface DenseArrayJsonImplementation extends JsonImplementation
+{
+	/**
+	 * Creates an implementation-specific array, equivalent to a JSON "[...]",
+	 * with the given elements.
+	 * 
+	 * @param elements
+	 *        The elements, which the implementation may keep and use as is,
+	 *        so the caller must not modify them afterwards
+	 * @return An implementation-specific array
+	 */
+	public Object createArray( Object[] elements );
+}
@@ -15,17 +15,31 @@ import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.ServiceLoader;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import com.threecrickets.jvm.json.generic.GenericJsonImplementation;
+import com.threecrickets.jvm.json.internal.BatchCodec;
+import com.threecrickets.jvm.json.internal.MappedFileReader;
+import com.threecrickets.jvm.json.internal.ParallelArrayDecoder;
 
 /**
  * Conversion to and from JSON text and native objects.
+ * <p>
+ * Entry points that require newer JVMs are in separate classes, so that this
+ * class can still be loaded on JVM 6: see {@link JsonFiles} (JVM 7) and
+ * {@link JsonStreams} (JVM 8).
  * 
  * @author Tal Liron
  */
@@ -40,7 +54,8 @@ public class Json
 	 * <p>
 	 * By default, it is the implementation for the current Scripturian
 	 * {@link com.threecrickets.scripturian.LanguageAdapter}. If there is none
-	 * available, the dummy {@link GenericJsonImplementation} will be used.
+	 * available, a shared instance of the dummy
+	 * {@link GenericJsonImplementation} will be used.
 	 * <p>
 	 * You can override this behavior and set a specific implementation using
 	 * {@link #setImplementation(JsonImplementation)}.
@@ -52,13 +67,25 @@ public class Json
 		JsonImplementation implementation = Json.implementation;
 		if( implementation != null )
 			return implementation;
-		else
+
+		if( hasScripturian )
 		{
-			implementation = implementations.get( getLanguageAdapterName() );
-			if( implementation == null )
-				implementation = new GenericJsonImplementation();
-			return implementation;
+			com.threecrickets.scripturian.LanguageAdapter adapter = getLanguageAdapter();
+			if( adapter != null )
+			{
+				AdapterImplementation adapterImplementation = Json.adapterImplementation;
+				if( ( adapterImplementation == null ) || ( adapterImplementation.adapter != adapter ) )
+				{
+					implementation = getImplementation( (String) adapter.getAttributes().get( com.threecrickets.scripturian.LanguageAdapter.NAME ) );
+					if( implementation == null )
+						implementation = GenericImplementationHolder.implementation;
+					Json.adapterImplementation = adapterImplementation = new AdapterImplementation( adapter, implementation );
+				}
+				return adapterImplementation.implementation;
+			}
 		}
+
+		return GenericImplementationHolder.implementation;
 	}
 
 	/**
@@ -75,13 +102,85 @@ public class Json
 	}
 
 	/**
-	 * All available implementations.
+	 * The available implementation for a name.
+	 * <p>
+	 * Implementations are discovered via {@link ServiceLoader} the first time
+	 * any implementation is requested, and each one is initialized the first
+	 * time it is requested.
+	 * 
+	 * @param name
+	 *        The implementation name
+	 * @return The initialized implementation or null if not available
+	 */
+	public static JsonImplementation getImplementation( String name )
+	{
+		DiscoveredImplementation discovered = getDiscoveredImplementations().get( name );
+		return discovered != null ? discovered.get() : null;
+	}
+
+	/**
+	 * All available implementations. Initializes all of them.
 	 * 
 	 * @return The implementations
 	 */
 	public static Collection<JsonImplementation> getImplementations()
 	{
-		return Collections.unmodifiableCollection( implementations.values() );
+		ArrayList<JsonImplementation> implementations = new ArrayList<JsonImplementation>();
+		for( DiscoveredImplementation discovered : getDiscoveredImplementations().values() )
+			implementations.add( discovered.get() );
+		return Collections.unmodifiableCollection( implementations );
+	}
+
+	/**
+	 * The executor used by the bulk methods in this class.
+	 * <p>
+	 * By default, it is a shared pool of daemon threads, one per processor,
+	 * created on first use.
+	 * <p>
+	 * The executor is not used with thread-bound implementations, such as
+	 * those for Rhino and Nashorn (see {@link ThreadBoundJsonImplementation}),
+	 * in which case the bulk methods run in the calling thread.
+	 * 
+	 * @return The executor
+	 * @see #toAll(List, boolean)
+	 * @see #fromAll(List, boolean)
+	 */
+	public static ExecutorService getExecutor()
+	{
+		ExecutorService executor = Json.executor;
+		if( executor == null )
+		{
+			synchronized( Json.class )
+			{
+				executor = Json.executor;
+				if( executor == null )
+				{
+					executor = Executors.newFixedThreadPool( Runtime.getRuntime().availableProcessors(), new ThreadFactory()
+					{
+						public Thread newThread( Runnable runnable )
+						{
+							Thread thread = new Thread( runnable, "json-jvm" );
+							thread.setDaemon( true );
+							return thread;
+						}
+					} );
+					Json.executor = executor;
+				}
+			}
+		}
+		return executor;
+	}
+
+	/**
+	 * Sets the executor used by the bulk methods in this class. A
+	 * <code>java.util.concurrent.ForkJoinPool</code> is a good choice.
+	 * 
+	 * @param executor
+	 *        The new executor, or null to use the default
+	 */
+	public static void setExecutor( ExecutorService executor )
+	{
+		Json.executor = executor;
 	}
 
 	//
@@ -159,6 +258,62 @@ public class Json
 		context.encode( object );
 	}
 
+	/**
+	 * Encodes many independent objects into compact JSON, in parallel.
+	 * 
+	 * @param objects
+	 *        The objects to encode
+	 * @return Implementation-specific strings, in the order of the objects
+	 * @see #getExecutor()
+	 */
+	public static List<Object> toAll( List<?> objects )
+	{
+		return toAll( objects, false );
+	}
+
+	/**
+	 * Encodes many independent objects into JSON, in parallel.
+	 * 
+	 * @param objects
+	 *        The objects to encode
+	 * @param expand
+	 *        Whether to expand the JSON with newlines, indents, and spaces
+	 * @return Implementation-specific strings, in the order of the objects
+	 * @throws RuntimeException
+	 *         If interrupted while waiting (the interrupt flag is kept set)
+	 * @see #getExecutor()
+	 */
+	public static List<Object> toAll( List<?> objects, boolean expand )
+	{
+		return BatchCodec.encode( objects, getImplementation(), expand, getExecutor() );
+	}
+
+	/**
+	 * Creates a generator for writing JSON incrementally.
+	 * 
+	 * @param out
+	 *        Where to write the JSON
+	 * @param expand
+	 *        Whether to expand the JSON with newlines, indents, and spaces
+	 * @return A generator
+	 */
+	public static JsonGenerator createGenerator( Appendable out, boolean expand )
+	{
+		return new JsonGenerator( getImplementation().createContext( out, expand, false, 0 ) );
+	}
+
+	/**
+	 * Creates a writer for newline-delimited JSON (NDJSON).
+	 * 
+	 * @param out
+	 *        Where to write the JSON
+	 * @return A writer
+	 */
+	public static JsonLinesWriter createLinesWriter( Writer out )
+	{
+		return new JsonLinesWriter( getImplementation(), out );
+	}
+
 	/**
 	 * Decodes JSON into implementation-specific objects. Supports both JSON
 	 * objects and arrays. Do not allow transformations.
@@ -219,6 +374,90 @@ public class Json
 		return decoder.decode();
 	}
 
+	/**
+	 * Decodes many independent JSON texts into implementation-specific
+	 * objects, in parallel. Do not allow transformations.
+	 * 
+	 * @param texts
+	 *        The JSON texts
+	 * @return Implementation-specific objects or arrays, in the order of the
+	 *         texts
+	 * @throws JsonSyntaxError
+	 *         In case of a JSON syntax error in any of the texts
+	 * @see #getExecutor()
+	 */
+	public static List<Object> fromAll( List<? extends CharSequence> texts ) throws JsonSyntaxError
+	{
+		return fromAll( texts, false );
+	}
+
+	/**
+	 * Decodes many independent JSON texts into implementation-specific
+	 * objects, in parallel.
+	 * 
+	 * @param texts
+	 *        The JSON texts
+	 * @param allowTransform
+	 *        Whether to allow transformations
+	 * @return Implementation-specific objects or arrays, in the order of the
+	 *         texts
+	 * @throws JsonSyntaxError
+	 *         In case of a JSON syntax error in any of the texts
+	 * @throws RuntimeException
+	 *         If interrupted while waiting (the interrupt flag is kept set)
+	 * @see #getExecutor()
+	 */
+	public static List<Object> fromAll( List<? extends CharSequence> texts, boolean allowTransform ) throws JsonSyntaxError
+	{
+		return BatchCodec.decode( texts, getImplementation(), allowTransform, getExecutor() );
+	}
+
+	/**
+	 * Decodes a single, very large JSON array into an implementation-specific
+	 * array, decoding its elements in parallel.
+	 * <p>
+	 * Only worthwhile for arrays with many elements. The text must be a JSON
+	 * array.
+	 * 
+	 * @param reader
+	 *        The reader
+	 * @param allowTransform
+	 *        Whether to allow transformations
+	 * @return An implementation-specific array
+	 * @throws JsonSyntaxError
+	 *         In case of a JSON syntax error
+	 * @throws IOException
+	 *         In case of a read error
+	 * @see #getExecutor()
+	 */
+	public static Object fromArray( Reader reader, boolean allowTransform ) throws JsonSyntaxError, IOException
+	{
+		return new ParallelArrayDecoder( getImplementation(), reader, allowTransform, getExecutor() ).decode();
+	}
+
+	/**
+	 * Decodes UTF-8 JSON into implementation-specific objects by
+	 * memory-mapping a file from the channel's current position. Supports both
+	 * JSON objects and arrays.
+	 * <p>
+	 * This avoids copying the file's bytes onto the heap, and is especially
+	 * efficient for large files that are already in the OS page cache.
+	 * 
+	 * @param channel
+	 *        The file channel (will not be closed)
+	 * @param allowTransform
+	 *        Whether to allow transformations
+	 * @return An implementation-specific object or an array
+	 * @throws JsonSyntaxError
+	 *         In case of a JSON syntax error
+	 * @throws IOException
+	 *         In case of a read error
+	 */
+	public static Object from( FileChannel channel, boolean allowTransform ) throws JsonSyntaxError, IOException
+	{
+		return from( new MappedFileReader( channel ), allowTransform );
+	}
+
 	/**
 	 * Creates a JSON decoder that decodes into implementation-specific objects.
 	 * 
@@ -233,52 +472,174 @@ public class Json
 		return getImplementation().createDecoder( reader, allowTransform );
 	}
 
+	/**
+	 * Creates a reader for newline-delimited JSON (NDJSON) or concatenated
+	 * JSON values, which decodes in parallel.
+	 * 
+	 * @param reader
+	 *        The reader
+	 * @param allowTransform
+	 *        Whether to allow transformations
+	 * @return A reader
+	 * @see #getExecutor()
+	 */
+	public static JsonLinesReader createLinesReader( Reader reader, boolean allowTransform )
+	{
+		return new JsonLinesReader( getImplementation(), reader, allowTransform, getExecutor() );
+	}
+
 	// //////////////////////////////////////////////////////////////////////////
 	// Private
 
 	private static volatile JsonImplementation implementation;
 
-	private static final Map<String, JsonImplementation> implementations = new HashMap<String, JsonImplementation>();
+	private static volatile ExecutorService executor;
 
 	/**
-	 * The name of the current Scripturian
-	 * {@link com.threecrickets.scripturian.LanguageAdapter}.
-	 * 
-	 * @return The language adapter name
+	 * Implementations discovered via {@link ServiceLoader}, by name. Never
+	 * modified after discovery.
+	 */
+	private static volatile Map<String, DiscoveredImplementation> discoveredImplementations;
+
+	/**
+	 * An implementation that is initialized on first use.
 	 */
-	private static String getLanguageAdapterName()
+	private static class DiscoveredImplementation
 	{
-		try
+		public DiscoveredImplementation( JsonImplementation implementation )
 		{
-			return (String) com.threecrickets.scripturian.ExecutionContext.getCurrent().getAdapter().getAttributes().get( com.threecrickets.scripturian.LanguageAdapter.NAME );
+			this.implementation = implementation;
 		}
-		catch( NoClassDefFoundError x )
+
+		public JsonImplementation get()
 		{
-			return null;
+			if( !initialized )
+			{
+				synchronized( this )
+				{
+					if( !initialized )
+					{
+						implementation.initialize();
+						initialized = true;
+					}
+				}
+			}
+			return implementation;
 		}
+
+		private final JsonImplementation implementation;
+
+		private volatile boolean initialized;
 	}
 
-	static
+	/**
+	 * Discovers the implementations on first call. Only the implementations
+	 * with the highest priority for each name are kept. They are not
+	 * initialized.
+	 * 
+	 * @return The implementations by name
+	 */
+	private static Map<String, DiscoveredImplementation> getDiscoveredImplementations()
 	{
-		ServiceLoader<JsonImplementation> implementationLoader = ServiceLoader.load( JsonImplementation.class, Json.class.getClassLoader() );
-		for( Iterator<JsonImplementation> i = implementationLoader.iterator(); i.hasNext(); )
+		Map<String, DiscoveredImplementation> discoveredImplementations = Json.discoveredImplementations;
+		if( discoveredImplementations == null )
 		{
-			JsonImplementation implementation;
-			try
-			{
-				implementation = i.next();
-			}
-			catch( Throwable x )
-			{
-				// Probably a ClassNotFoundException
-				continue;
-			}
-			JsonImplementation existing = implementations.get( implementation.getName() );
-			if( ( existing == null ) || ( implementation.getPriority() > existing.getPriority() ) )
+			synchronized( Json.class )
 			{
-				implementation.initialize();
-				implementations.put( implementation.getName(), implementation );
+				discoveredImplementations = Json.discoveredImplementations;
+				if( discoveredImplementations == null )
+				{
+					Map<String, JsonImplementation> implementations = new HashMap<String, JsonImplementation>();
+					ServiceLoader<JsonImplementation> implementationLoader = ServiceLoader.load( JsonImplementation.class, Json.class.getClassLoader() );
+					for( Iterator<JsonImplementation> i = implementationLoader.iterator(); i.hasNext(); )
+					{
+						JsonImplementation implementation;
+						try
+						{
+							implementation = i.next();
+						}
+						catch( Throwable x )
+						{
+							// Probably a ClassNotFoundException
+							continue;
+						}
+						JsonImplementation existing = implementations.get( implementation.getName() );
+						if( ( existing == null ) || ( implementation.getPriority() > existing.getPriority() ) )
+							implementations.put( implementation.getName(), implementation );
+					}
+
+					discoveredImplementations = new HashMap<String, DiscoveredImplementation>();
+					for( Map.Entry<String, JsonImplementation> entry : implementations.entrySet() )
+						discoveredImplementations.put( entry.getKey(), new DiscoveredImplementation( entry.getValue() ) );
+					Json.discoveredImplementations = discoveredImplementations;
+				}
 			}
 		}
+		return discoveredImplementations;
+	}
+
+	/**
+	 * Whether Scripturian is available. Probed once, so that we do not have to
+	 * throw and catch a {@link NoClassDefFoundError} on every call.
+	 */
+	private static final boolean hasScripturian;
+
+	/**
+	 * The implementation for the last language adapter we looked up. An
+	 * adapter's name never changes, so it is safe to cache.
+	 */
+	private static volatile AdapterImplementation adapterImplementation;
+
+	private static class AdapterImplementation
+	{
+		public AdapterImplementation( Object adapter, JsonImplementation implementation )
+		{
+			this.adapter = adapter;
+			this.implementation = implementation;
+		}
+
+		public final Object adapter;
+
+		public final JsonImplementation implementation;
+	}
+
+	/**
+	 * Initialized on first use.
+	 */
+	private static class GenericImplementationHolder
+	{
+		public static final JsonImplementation implementation = new GenericJsonImplementation();
+
+		static
+		{
+			implementation.initialize();
+		}
+	}
+
+	/**
+	 * The current Scripturian
+	 * {@link com.threecrickets.scripturian.LanguageAdapter}.
+	 * 
+	 * @return The language adapter or null
+	 */
+	private static com.threecrickets.scripturian.LanguageAdapter getLanguageAdapter()
+	{
+		com.threecrickets.scripturian.ExecutionContext executionContext = com.threecrickets.scripturian.ExecutionContext.getCurrent();
+		return executionContext != null ? executionContext.getAdapter() : null;
+	}
+
+	static
+	{
+		boolean scripturian;
+		try
+		{
+			Class.forName( "com.threecrickets.scripturian.ExecutionContext", false, Json.class.getClassLoader() );
+			scripturian = true;
+		}
+		catch( Throwable x )
+		{
+			scripturian = false;
+		}
+		hasScripturian = scripturian;
 	}
 }
@@ -11,9 +11,18 @@
 
 package com.threecrickets.jvm.json;
 
+import java.io.Flushable;
 import java.io.IOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import com.threecrickets.jvm.json.internal.DoubleToDecimal;
+import com.threecrickets.jvm.json.internal.LongToDecimal;
 import com.threecrickets.jvm.json.util.JsonUtil;
+import com.threecrickets.jvm.json.util.PreEncodedString;
 
 /**
  * Stores information used for encoding JSON, and provides related utilities.
@@ -87,6 +96,181 @@ public class JsonContext
 	 */
 	public final int depth;
 
+	/**
+	 * The maximum number of digits after the decimal point when writing
+	 * doubles and floats, or -1 (the default) for no limit.
+	 * 
+	 * @return The number of decimal places or -1
+	 * @see #setDecimalPlaces(int)
+	 */
+	public int getDecimalPlaces()
+	{
+		return decimalPlaces;
+	}
+
+	/**
+	 * Rounds doubles and floats (half up) to at most this number of digits
+	 * after the decimal point. Trailing zeros are not written. Useful for
+	 * coordinates and sensor readings, which do not need the full precision.
+	 * <p>
+	 * Clears the significant digits setting.
+	 * 
+	 * @param decimalPlaces
+	 *        The number of decimal places or -1 for no limit
+	 * @see #getDecimalPlaces()
+	 */
+	public void setDecimalPlaces( int decimalPlaces )
+	{
+		if( decimalPlaces < -1 )
+			throw new IllegalArgumentException( "Decimal places must be -1 or greater" );
+		this.decimalPlaces = decimalPlaces;
+		significantDigits = -1;
+	}
+
+	/**
+	 * The maximum number of significant digits when writing doubles and
+	 * floats, or -1 (the default) for no limit.
+	 * 
+	 * @return The number of significant digits or -1
+	 * @see #setSignificantDigits(int)
+	 */
+	public int getSignificantDigits()
+	{
+		return significantDigits;
+	}
+
+	/**
+	 * Rounds doubles and floats (half up) to at most this number of
+	 * significant digits. Trailing zeros are not written.
+	 * <p>
+	 * Clears the decimal places setting.
+	 * 
+	 * @param significantDigits
+	 *        The number of significant digits or -1 for no limit
+	 * @see #getSignificantDigits()
+	 */
+	public void setSignificantDigits( int significantDigits )
+	{
+		if( ( significantDigits != -1 ) && ( significantDigits < 1 ) )
+			throw new IllegalArgumentException( "Significant digits must be -1 or greater than 0" );
+		this.significantDigits = significantDigits;
+		decimalPlaces = -1;
+	}
+
+	/**
+	 * When encoding iterators, iterables, streams and enumerations, flush the
+	 * output every this many elements. 0 (the default) means never.
+	 * 
+	 * @return The flush interval
+	 * @see #setFlushInterval(int)
+	 */
+	public int getFlushInterval()
+	{
+		return flushInterval;
+	}
+
+	/**
+	 * When encoding iterators, iterables, streams and enumerations, flush the
+	 * output every this many elements. This allows elements to reach a client
+	 * as they are produced.
+	 * 
+	 * @param flushInterval
+	 *        The flush interval, or 0 to never flush
+	 * @see #getFlushInterval()
+	 */
+	public void setFlushInterval( int flushInterval )
+	{
+		if( flushInterval < 0 )
+			throw new IllegalArgumentException( "Flush interval must be 0 or greater" );
+		this.flushInterval = flushInterval;
+	}
+
+	/**
+	 * Whether to encode <code>byte[]</code> arrays as Base64 strings rather
+	 * than as arrays of numbers.
+	 * 
+	 * @return True if encoding bytes as Base64
+	 * @see #setBase64Bytes(boolean)
+	 */
+	public boolean isBase64Bytes()
+	{
+		return base64Bytes;
+	}
+
+	/**
+	 * Whether to encode <code>byte[]</code> arrays as Base64 strings rather
+	 * than as arrays of numbers. Base64 is much more compact.
+	 * 
+	 * @param base64Bytes
+	 *        True to encode bytes as Base64
+	 * @see #isBase64Bytes()
+	 */
+	public void setBase64Bytes( boolean base64Bytes )
+	{
+		this.base64Bytes = base64Bytes;
+	}
+
+	/**
+	 * The executor used for encoding very large collections and maps in
+	 * parallel, or null (the default) to always encode in the current thread.
+	 * 
+	 * @return The executor or null
+	 * @see #setExecutor(ExecutorService)
+	 */
+	public ExecutorService getExecutor()
+	{
+		return executor;
+	}
+
+	/**
+	 * The executor used for encoding very large collections and maps in
+	 * parallel, or null to always encode in the current thread. A
+	 * <code>java.util.concurrent.ForkJoinPool</code> is a good choice.
+	 * <p>
+	 * Collections and maps with at least {@link #getParallelThreshold()}
+	 * entries are split into chunks, each chunk is encoded into its own buffer
+	 * by the executor, and the buffers are then written in order. The output
+	 * is identical to that of sequential encoding. Note that the collection or
+	 * map must not be modified during encoding, and that its values must be
+	 * safe to encode in other threads.
+	 * 
+	 * @param executor
+	 *        The executor or null
+	 * @see #getExecutor()
+	 */
+	public void setExecutor( ExecutorService executor )
+	{
+		this.executor = executor;
+	}
+
+	/**
+	 * The minimum number of entries in a collection or map for it to be
+	 * encoded in parallel. Defaults to 10,000.
+	 * 
+	 * @return The parallel threshold
+	 * @see #setParallelThreshold(int)
+	 */
+	public int getParallelThreshold()
+	{
+		return parallelThreshold;
+	}
+
+	/**
+	 * The minimum number of entries in a collection or map for it to be
+	 * encoded in parallel. Has no effect if there is no executor.
+	 * 
+	 * @param parallelThreshold
+	 *        The parallel threshold
+	 * @see #getParallelThreshold()
+	 * @see #setExecutor(ExecutorService)
+	 */
+	public void setParallelThreshold( int parallelThreshold )
+	{
+		if( parallelThreshold < 1 )
+			throw new IllegalArgumentException( "Parallel threshold must be greater than 0" );
+		this.parallelThreshold = parallelThreshold;
+	}
+
 	//
 	// Operations
 	//
@@ -108,11 +292,34 @@ public class JsonContext
 	public JsonContext nest()
 	{
 		if( expand )
-			return implementation.createContext( out, expand, allowCode, depth + 1 );
+		{
+			JsonContext nested = implementation.createContext( out, expand, allowCode, depth + 1 );
+			nested.buffer = getBuffer();
+			copySettings( nested );
+			return nested;
+		}
 		else
 			return this;
 	}
 
+	/**
+	 * Creates a context at the same depth and with the same settings, but
+	 * writing to a different output. The new context does not share any
+	 * state with this one, so it can be used in another thread. It has no
+	 * executor, so that encoding with it never blocks on other tasks.
+	 * 
+	 * @param out
+	 *        Where to write the JSON
+	 * @return The new context
+	 */
+	public JsonContext fork( Appendable out )
+	{
+		JsonContext forked = implementation.createContext( out, expand, allowCode, depth );
+		copySettings( forked );
+		forked.executor = null;
+		return forked;
+	}
+
 	public void indent() throws IOException
 	{
 		if( expand )
@@ -153,4 +360,213 @@ public class JsonContext
 		out.append( JsonUtil.escapeCharSequence( string ) );
 		out.append( '\"' );
 	}
+
+	/**
+	 * Writes an already escaped and quoted string with a single bulk copy.
+	 * 
+	 * @param string
+	 *        The pre-encoded string
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void quoted( PreEncodedString string ) throws IOException
+	{
+		char[] chars = string.getChars();
+		append( chars, 0, chars.length );
+	}
+
+	/**
+	 * Writes an object key. Keys recur across objects, so their escaped and
+	 * quoted form is taken from {@link PreEncodedString#cached(String)}.
+	 * 
+	 * @param key
+	 *        The key
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void quotedKey( String key ) throws IOException
+	{
+		quoted( PreEncodedString.cached( key ) );
+	}
+
+	/**
+	 * Writes a number. Integral types (including {@link BigInteger}) are
+	 * written exactly, without going through a double, and floats are written
+	 * with the shortest digits that round back to the float.
+	 * 
+	 * @param number
+	 *        The number
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void number( Number number ) throws IOException
+	{
+		if( ( number instanceof Integer ) || ( number instanceof Long ) || ( number instanceof Short ) || ( number instanceof Byte ) || ( number instanceof AtomicLong ) || ( number instanceof AtomicInteger ) )
+			number( number.longValue() );
+		else if( number instanceof BigInteger )
+		{
+			BigInteger bigInteger = (BigInteger) number;
+			if( bigInteger.bitLength() < 64 )
+				number( bigInteger.longValue() );
+			else
+				out.append( bigInteger.toString() );
+		}
+		else if( number instanceof Float )
+			number( number.floatValue() );
+		else
+			number( number.doubleValue() );
+	}
+
+	/**
+	 * Writes an integer.
+	 * 
+	 * @param value
+	 *        The integer
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void number( long value ) throws IOException
+	{
+		char[] buffer = getBuffer();
+		append( buffer, 0, LongToDecimal.toChars( value, buffer, 0 ) );
+	}
+
+	/**
+	 * Writes a double with the shortest digits that round back to the double,
+	 * rounded further if decimal places or significant digits are set.
+	 * Integral values within the range in which doubles are exact are written
+	 * via {@link #number(long)}.
+	 * 
+	 * @param value
+	 *        The double
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void number( double value ) throws IOException
+	{
+		if( ( significantDigits == -1 ) && ( value >= -MAX_EXACT_DOUBLE ) && ( value <= MAX_EXACT_DOUBLE ) && ( value == (long) value ) )
+			number( (long) value );
+		else
+		{
+			char[] buffer = getBuffer();
+			append( buffer, 0, DoubleToDecimal.toChars( value, getNumberMode(), getNumberDigits(), buffer, 0 ) );
+		}
+	}
+
+	/**
+	 * Writes a float with the shortest digits that round back to the float
+	 * (not to the float widened to a double), rounded further if decimal
+	 * places or significant digits are set.
+	 * 
+	 * @param value
+	 *        The float
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void number( float value ) throws IOException
+	{
+		char[] buffer = getBuffer();
+		append( buffer, 0, DoubleToDecimal.toChars( value, getNumberMode(), getNumberDigits(), buffer, 0 ) );
+	}
+
+	/**
+	 * Flushes the output, if it supports flushing.
+	 * 
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void flush() throws IOException
+	{
+		if( out instanceof Flushable )
+			( (Flushable) out ).flush();
+	}
+
+	/**
+	 * Writes chars directly, in bulk if the output supports it.
+	 * 
+	 * @param chars
+	 *        The chars
+	 * @param offset
+	 *        The offset in the chars
+	 * @param length
+	 *        The number of chars to write
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void append( char[] chars, int offset, int length ) throws IOException
+	{
+		if( out instanceof StringBuilder )
+			( (StringBuilder) out ).append( chars, offset, length );
+		else if( out instanceof Writer )
+			( (Writer) out ).write( chars, offset, length );
+		else if( out instanceof StringBuffer )
+			( (StringBuffer) out ).append( chars, offset, length );
+		else
+			for( int i = offset, end = offset + length; i < end; i++ )
+				out.append( chars[i] );
+	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Protected
+
+	/**
+	 * A scratch buffer for formatting, shared with nested contexts.
+	 * 
+	 * @return The buffer
+	 */
+	protected char[] getBuffer()
+	{
+		if( buffer == null )
+			buffer = new char[BUFFER_SIZE];
+		return buffer;
+	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	private static final int BUFFER_SIZE = 32;
+
+	/**
+	 * 2^53: above this not all integers can be represented as doubles.
+	 */
+	private static final double MAX_EXACT_DOUBLE = 9007199254740992.0;
+
+	private char[] buffer;
+
+	private int decimalPlaces = -1;
+
+	private int significantDigits = -1;
+
+	private int flushInterval;
+
+	private boolean base64Bytes;
+
+	private ExecutorService executor;
+
+	private int parallelThreshold = 10000;
+
+	private void copySettings( JsonContext context )
+	{
+		context.decimalPlaces = decimalPlaces;
+		context.significantDigits = significantDigits;
+		context.flushInterval = flushInterval;
+		context.base64Bytes = base64Bytes;
+		context.executor = executor;
+		context.parallelThreshold = parallelThreshold;
+	}
+
+	private int getNumberMode()
+	{
+		if( decimalPlaces != -1 )
+			return DoubleToDecimal.DECIMAL_PLACES;
+		else if( significantDigits != -1 )
+			return DoubleToDecimal.SIGNIFICANT_DIGITS;
+		else
+			return DoubleToDecimal.SHORTEST;
+	}
+
+	private int getNumberDigits()
+	{
+		return decimalPlaces != -1 ? decimalPlaces : significantDigits;
+	}
 }
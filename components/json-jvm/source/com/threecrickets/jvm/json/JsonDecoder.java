@@ -33,7 +33,10 @@ import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Collection;
 
+import com.threecrickets.jvm.json.internal.TransformerIndex;
+import com.threecrickets.jvm.json.util.Base64String;
 import com.threecrickets.jvm.json.util.JsonUtil;
+import com.threecrickets.jvm.json.util.RawJson;
 
 /**
  * Decoded JSON text to objects.
@@ -58,7 +61,7 @@ public class JsonDecoder
 	{
 		this.implementation = implementation;
 		this.reader = reader.markSupported() ? reader : new BufferedReader( reader );
-		this.allowTransform = allowTransform;
+		this.transformerIndex = allowTransform ? TransformerIndex.get( implementation ) : null;
 		this.eof = false;
 		this.usePrevious = false;
 		this.previous = 0;
@@ -67,6 +70,69 @@ public class JsonDecoder
 		this.line = 1;
 	}
 
+	//
+	// Attributes
+	//
+
+	/**
+	 * Whether strings that are valid Base64 are decoded as
+	 * {@link Base64String}.
+	 * 
+	 * @return True if decoding Base64 strings
+	 * @see #setBase64Strings(boolean)
+	 */
+	public boolean isBase64Strings()
+	{
+		return base64Strings;
+	}
+
+	/**
+	 * Whether strings that are valid Base64 are decoded as
+	 * {@link Base64String}, regardless of the implementation. These behave as
+	 * regular {@link CharSequence} instances, but can also be decoded into
+	 * bytes on demand, so there is no decoding cost unless the bytes are
+	 * actually used.
+	 * <p>
+	 * Note that short words can also be valid Base64 (for example, "abcd").
+	 * 
+	 * @param base64Strings
+	 *        True to decode Base64 strings
+	 * @see #isBase64Strings()
+	 */
+	public void setBase64Strings( boolean base64Strings )
+	{
+		this.base64Strings = base64Strings;
+	}
+
+	/**
+	 * Object keys whose values are captured as {@link RawJson}.
+	 * 
+	 * @return The keys, or null if none
+	 * @see #setRawKeys(Collection)
+	 */
+	public Collection<String> getRawKeys()
+	{
+		return rawKeys;
+	}
+
+	/**
+	 * Object keys whose values are captured as {@link RawJson} instead of
+	 * being decoded. The captured text is not parsed (only its brackets and
+	 * quotes are tracked) and is not transformed, so it can be cheaply
+	 * embedded as is when encoding.
+	 * <p>
+	 * Keys are matched at every nesting level. Prefer a {@link java.util.Set}
+	 * for fast lookups.
+	 * 
+	 * @param rawKeys
+	 *        The keys, or null for none
+	 * @see #getRawKeys()
+	 */
+	public void setRawKeys( Collection<String> rawKeys )
+	{
+		this.rawKeys = rawKeys;
+	}
+
 	//
 	// Operations
 	//
@@ -111,6 +177,8 @@ public class JsonDecoder
 		Object object = implementation.createObject();
 		char c;
 		String key;
+		boolean checkMarkers = ( transformerIndex != null ) && transformerIndex.hasMarkers();
+		long markers = 0;
 
 		if( nextClean() != '{' )
 			throw new JsonSyntaxError( "A JSON object text must begin with '{'", line, column );
@@ -122,12 +190,15 @@ public class JsonDecoder
 				case 0:
 					throw new JsonSyntaxError( "A JSON object text must end with '}'", line, column );
 				case '}':
-					return transform( object );
+					return transformObject( object, markers );
 				default:
 					back();
 					key = nextValue().toString();
 			}
 
+			if( checkMarkers )
+				markers |= transformerIndex.getMarker( key );
+
 			// The key is followed by ':'. We will also tolerate '=' or '=>'.
 
 			c = nextClean();
@@ -138,7 +209,10 @@ public class JsonDecoder
 			}
 			else if( c != ':' )
 				throw new JsonSyntaxError( "Expected a ':' after a key", line, column );
-			implementation.putInObject( object, key, transform( nextValue() ) );
+			if( ( rawKeys != null ) && rawKeys.contains( key ) )
+				implementation.putInObject( object, key, nextRaw() );
+			else
+				implementation.putInObject( object, key, nextTransformedValue() );
 
 			// Pairs are separated by ','. We will also tolerate ';'.
 
@@ -147,11 +221,11 @@ public class JsonDecoder
 				case ';':
 				case ',':
 					if( nextClean() == '}' )
-						return transform( object );
+						return transformObject( object, markers );
 					back();
 					break;
 				case '}':
-					return transform( object );
+					return transformObject( object, markers );
 				default:
 					throw new JsonSyntaxError( "Expected a ',' or '}'", line, column );
 			}
@@ -180,7 +254,7 @@ public class JsonDecoder
 		else
 			throw new JsonSyntaxError( "A JSON array text must start with '['", line, column );
 		if( nextClean() == ']' )
-			return transform( collectionToArray( list ) );
+			return transformArray( collectionToArray( list ) );
 		back();
 		for( ;; )
 		{
@@ -192,7 +266,7 @@ public class JsonDecoder
 			else
 			{
 				back();
-				list.add( transform( nextValue() ) );
+				list.add( nextTransformedValue() );
 			}
 			c = nextClean();
 			switch( c )
@@ -200,20 +274,124 @@ public class JsonDecoder
 				case ';':
 				case ',':
 					if( nextClean() == ']' )
-						return transform( collectionToArray( list ) );
+						return transformArray( collectionToArray( list ) );
 					back();
 					break;
 				case ']':
 				case ')':
 					if( q != c )
 						throw new JsonSyntaxError( "Expected a '" + new Character( q ) + "'", line, column );
-					return transform( collectionToArray( list ) );
+					return transformArray( collectionToArray( list ) );
 				default:
 					throw new JsonSyntaxError( "Expected a ',' or ']'", line, column );
 			}
 		}
 	}
 
+	/**
+	 * Starts streaming the elements of an array: consumes the opening "[". Use
+	 * {@link #hasNextElement()} and {@link #decodeValue()} to decode the
+	 * elements one at a time, so that the whole array never has to be held in
+	 * memory.
+	 * 
+	 * @throws JsonSyntaxError
+	 *         In case of a JSON syntax error
+	 * @throws IOException
+	 *         In case of a read error
+	 */
+	public void startArray() throws JsonSyntaxError, IOException
+	{
+		char c = nextClean();
+		if( ( c != '[' ) && ( c != '(' ) )
+			throw new JsonSyntaxError( "A JSON array text must start with '['", line, column );
+		firstElement = true;
+	}
+
+	/**
+	 * While streaming the elements of an array, consumes the separator before
+	 * the next element, or the closing "]" if there are no more elements.
+	 * 
+	 * @return True if there is another element, which should be decoded with
+	 *         {@link #decodeValue()}
+	 * @throws JsonSyntaxError
+	 *         In case of a JSON syntax error
+	 * @throws IOException
+	 *         In case of a read error
+	 * @see #startArray()
+	 */
+	public boolean hasNextElement() throws JsonSyntaxError, IOException
+	{
+		char c = nextClean();
+		if( !firstElement )
+		{
+			if( ( c == ',' ) || ( c == ';' ) )
+				c = nextClean();
+			else if( ( c != ']' ) && ( c != ')' ) && ( c != 0 ) )
+				throw new JsonSyntaxError( "Expected a ',' or ']'", line, column );
+		}
+		firstElement = false;
+		switch( c )
+		{
+			case 0:
+				throw new JsonSyntaxError( "A JSON array text must end with ']'", line, column );
+			case ']':
+			case ')':
+				return false;
+			default:
+				back();
+				return true;
+		}
+	}
+
+	/**
+	 * Decode a single value of any type, including strings, numbers, booleans
+	 * and null.
+	 * 
+	 * @return A value
+	 * @throws JsonSyntaxError
+	 *         In case of a JSON syntax error
+	 * @throws IOException
+	 *         In case of a read error
+	 */
+	public Object decodeValue() throws JsonSyntaxError, IOException
+	{
+		return nextTransformedValue();
+	}
+
+	/**
+	 * Whether there is more JSON text to decode. This allows for decoding
+	 * several concatenated values from the same reader, whether or not they
+	 * are separated by whitespace.
+	 * 
+	 * @return True if there is more than whitespace left
+	 * @throws JsonSyntaxError
+	 *         In case of a JSON syntax error
+	 * @throws IOException
+	 *         In case of a read error
+	 */
+	public boolean hasMore() throws JsonSyntaxError, IOException
+	{
+		if( nextClean() == 0 )
+			return false;
+		back();
+		return true;
+	}
+
+	/**
+	 * Captures the next value (of any type) as {@link RawJson}, without
+	 * decoding it.
+	 * 
+	 * @return The raw JSON
+	 * @throws JsonSyntaxError
+	 *         In case of a JSON syntax error
+	 * @throws IOException
+	 *         In case of a read error
+	 */
+	public RawJson decodeRaw() throws JsonSyntaxError, IOException
+	{
+		return nextRaw();
+	}
+
 	// //////////////////////////////////////////////////////////////////////////
 	// Private
 
@@ -221,7 +399,13 @@ public class JsonDecoder
 
 	private final Reader reader;
 
-	private final boolean allowTransform;
+	private final TransformerIndex transformerIndex;
+
+	private boolean base64Strings;
+
+	private Collection<String> rawKeys;
+
+	private boolean firstElement;
 
 	private int line;
 
@@ -437,6 +621,11 @@ public class JsonDecoder
 		{
 			case '"':
 			case '\'':
+				if( base64Strings )
+				{
+					String string = nextString( c );
+					return Base64String.isBase64( string ) ? new Base64String( string ) : string;
+				}
 				return nextString( c );
 			case '{':
 				back();
@@ -467,6 +656,81 @@ public class JsonDecoder
 		return stringToValue( s );
 	}
 
+	/**
+	 * Get the text of the next value without decoding it. Only quotes,
+	 * escapes and bracket nesting are tracked.
+	 * 
+	 * @return The raw JSON
+	 * @throws JsonSyntaxError
+	 *         In case of a JSON syntax error
+	 * @throws IOException
+	 *         In case of a read error
+	 */
+	private RawJson nextRaw() throws JsonSyntaxError, IOException
+	{
+		StringBuilder sb = new StringBuilder();
+		int depth = 0;
+		char quote = 0;
+		char c = nextClean();
+		for( ;; )
+		{
+			if( c == 0 )
+			{
+				if( ( depth > 0 ) || ( quote != 0 ) )
+					throw new JsonSyntaxError( "Unterminated value", line, column );
+				back();
+				break;
+			}
+
+			if( quote != 0 )
+			{
+				sb.append( c );
+				if( c == '\\' )
+					sb.append( next() );
+				else if( c == quote )
+				{
+					quote = 0;
+					if( depth == 0 )
+						break;
+				}
+			}
+			else if( ( c == '"' ) || ( c == '\'' ) )
+			{
+				sb.append( c );
+				quote = c;
+			}
+			else if( ( c == '{' ) || ( c == '[' ) || ( c == '(' ) )
+			{
+				sb.append( c );
+				depth++;
+			}
+			else if( ( c == '}' ) || ( c == ']' ) || ( c == ')' ) )
+			{
+				if( depth == 0 )
+				{
+					back();
+					break;
+				}
+				sb.append( c );
+				if( --depth == 0 )
+					break;
+			}
+			else if( ( depth == 0 ) && ( ( c <= ' ' ) || ( c == ',' ) || ( c == ';' ) ) )
+			{
+				back();
+				break;
+			}
+			else
+				sb.append( c );
+
+			c = next();
+		}
+
+		if( sb.length() == 0 )
+			throw new JsonSyntaxError( "Missing value", line, column );
+		return new RawJson( sb.toString() );
+	}
+
 	private Object stringToValue( String s )
 	{
 		if( s.equals( "" ) )
@@ -525,6 +789,9 @@ public class JsonDecoder
 
 	private Object collectionToArray( Collection<Object> collection )
 	{
+		if( implementation instanceof DenseArrayJsonImplementation )
+			return ( (DenseArrayJsonImplementation) implementation ).createArray( collection.toArray() );
+
 		Object array = implementation.createArray( collection.size() );
 		int index = 0;
 		for( Object item : collection )
@@ -532,17 +799,35 @@ public class JsonDecoder
 		return array;
 	}
 
-	private Object transform( Object object )
+	/**
+	 * Get the next value, transformed. Objects and arrays transform
+	 * themselves, so only other values need to be transformed here.
+	 * 
+	 * @return An object.
+	 * @throws JsonSyntaxError
+	 *         In case of a JSON syntax error
+	 * @throws IOException
+	 *         In case of a read error
+	 */
+	private Object nextTransformedValue() throws JsonSyntaxError, IOException
 	{
-		if( allowTransform )
-		{
-			for( JsonTransformer transformer : implementation.getTransformers() )
-			{
-				Object r = transformer.transform( object, implementation );
-				if( r != null )
-					return r;
-			}
-		}
-		return object;
+		if( transformerIndex == null )
+			return nextValue();
+		char c = nextClean();
+		back();
+		Object value = nextValue();
+		if( ( c == '{' ) || ( c == '[' ) || ( c == '(' ) )
+			return value;
+		return transformerIndex.transformScalar( value, implementation );
+	}
+
+	private Object transformObject( Object object, long markers )
+	{
+		return transformerIndex != null ? transformerIndex.transformObject( object, markers, implementation ) : object;
+	}
+
+	private Object transformArray( Object array )
+	{
+		return transformerIndex != null ? transformerIndex.transformArray( array, implementation ) : array;
 	}
 }
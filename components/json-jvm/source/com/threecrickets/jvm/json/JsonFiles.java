@@ -0,0 +1,63 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+
+package com.threecrickets.jvm.json;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Decoding of JSON files by path, using the implementation of {@link Json}.
+ * <p>
+ * Requires JVM 7. (Kept separate from {@link Json} so that it can be loaded
+ * on older JVMs.)
+ * 
+ * @author Tal Liron
+ */
+public class JsonFiles
+{
+	//
+	// Static operations
+	//
+
+	/**
+	 * Decodes a UTF-8 JSON file into implementation-specific objects by
+	 * memory-mapping it. Supports both JSON objects and arrays.
+	 * <p>
+	 * This avoids copying the file's bytes onto the heap, and is especially
+	 * efficient for large files that are already in the OS page cache.
+	 * 
+	 * @param path
+	 *        The file path
+	 * @param allowTransform
+	 *        Whether to allow transformations
+	 * @return An implementation-specific object or an array
+	 * @throws JsonSyntaxError
+	 *         In case of a JSON syntax error
+	 * @throws IOException
+	 *         In case of a read error
+	 * @see Json#from(FileChannel, boolean)
+	 */
+	public static Object from( Path path, boolean allowTransform ) throws JsonSyntaxError, IOException
+	{
+		FileChannel channel = FileChannel.open( path, StandardOpenOption.READ );
+		try
+		{
+			return Json.from( channel, allowTransform );
+		}
+		finally
+		{
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,402 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+
+package com.threecrickets.jvm.json;
+
+import java.io.IOException;
+
+import com.threecrickets.jvm.json.util.PreEncodedString;
+
+/**
+ * Writes JSON incrementally, one token at a time, so that large documents can
+ * be streamed without first building them in memory.
+ * <p>
+ * Writing goes through a {@link JsonContext}, so the output is identical to
+ * that of the encoders: the same escaping, expansion (newlines and indents)
+ * and number formatting. Already-built objects can be embedded at any point
+ * via {@link #writeObject(Object)}, in which case they are encoded by the
+ * implementation's encoders.
+ * <p>
+ * Instances are not thread-safe.
+ * 
+ * @author Tal Liron
+ * @see Json#createGenerator(Appendable, boolean)
+ */
+public class JsonGenerator
+{
+	//
+	// Construction
+	//
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param context
+	 *        The context for the top level
+	 */
+	public JsonGenerator( JsonContext context )
+	{
+		this.context = context;
+	}
+
+	//
+	// Attributes
+	//
+
+	/**
+	 * The context for the top level.
+	 */
+	public final JsonContext context;
+
+	/**
+	 * The current nesting level of objects and arrays.
+	 * 
+	 * @return The nesting level, 0 if we are at the top level
+	 */
+	public int getLevel()
+	{
+		return level;
+	}
+
+	//
+	// Operations
+	//
+
+	/**
+	 * Starts a JSON object, "{".
+	 * 
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void writeStartObject() throws IOException
+	{
+		JsonContext valueContext = beforeValue();
+		valueContext.out.append( '{' );
+		push( valueContext, true );
+	}
+
+	/**
+	 * Ends the current JSON object, "}".
+	 * 
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void writeEndObject() throws IOException
+	{
+		if( ( level == 0 ) || !objects[level - 1] )
+			throw new IllegalStateException( "Not in an object" );
+		if( awaitingValue )
+			throw new IllegalStateException( "Missing value for key" );
+		end( '}' );
+	}
+
+	/**
+	 * Starts a JSON array, "[".
+	 * 
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void writeStartArray() throws IOException
+	{
+		JsonContext valueContext = beforeValue();
+		valueContext.out.append( '[' );
+		push( valueContext, false );
+	}
+
+	/**
+	 * Ends the current JSON array, "]".
+	 * 
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void writeEndArray() throws IOException
+	{
+		if( ( level == 0 ) || objects[level - 1] )
+			throw new IllegalStateException( "Not in an array" );
+		end( ']' );
+	}
+
+	/**
+	 * Writes a key in the current JSON object. Must be followed by a value.
+	 * 
+	 * @param key
+	 *        The key
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void writeKey( String key ) throws IOException
+	{
+		beforeKey().quotedKey( key );
+		afterKey();
+	}
+
+	/**
+	 * Writes a pre-encoded key in the current JSON object. Must be followed
+	 * by a value.
+	 * 
+	 * @param key
+	 *        The key
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void writeKey( PreEncodedString key ) throws IOException
+	{
+		beforeKey().quoted( key );
+		afterKey();
+	}
+
+	/**
+	 * Writes a string.
+	 * 
+	 * @param value
+	 *        The string
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void writeString( CharSequence value ) throws IOException
+	{
+		beforeValue().quoted( value );
+	}
+
+	/**
+	 * Writes a pre-encoded string with a single bulk copy.
+	 * 
+	 * @param value
+	 *        The string
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void writeString( PreEncodedString value ) throws IOException
+	{
+		beforeValue().quoted( value );
+	}
+
+	/**
+	 * Writes an integer.
+	 * 
+	 * @param value
+	 *        The integer
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void writeNumber( long value ) throws IOException
+	{
+		beforeValue().number( value );
+	}
+
+	/**
+	 * Writes a double.
+	 * 
+	 * @param value
+	 *        The double
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void writeNumber( double value ) throws IOException
+	{
+		beforeValue().number( value );
+	}
+
+	/**
+	 * Writes a float.
+	 * 
+	 * @param value
+	 *        The float
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void writeNumber( float value ) throws IOException
+	{
+		beforeValue().number( value );
+	}
+
+	/**
+	 * Writes a number.
+	 * 
+	 * @param value
+	 *        The number
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void writeNumber( Number value ) throws IOException
+	{
+		beforeValue().number( value );
+	}
+
+	/**
+	 * Writes a boolean.
+	 * 
+	 * @param value
+	 *        The boolean
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void writeBoolean( boolean value ) throws IOException
+	{
+		beforeValue().out.append( value ? "true" : "false" );
+	}
+
+	/**
+	 * Writes a null.
+	 * 
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void writeNull() throws IOException
+	{
+		beforeValue().out.append( "null" );
+	}
+
+	/**
+	 * Writes any object using the implementation's encoders, as if it were
+	 * encoded with {@link JsonContext#encode(Object)} at this position.
+	 * 
+	 * @param object
+	 *        The object
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void writeObject( Object object ) throws IOException
+	{
+		beforeValue().encode( object );
+	}
+
+	/**
+	 * Flushes the output, if it supports flushing.
+	 * 
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void flush() throws IOException
+	{
+		context.flush();
+	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * For each level, the context of the container.
+	 */
+	private JsonContext[] contexts = new JsonContext[INITIAL_CAPACITY];
+
+	/**
+	 * For each level, whether the container is an object (or an array).
+	 */
+	private boolean[] objects = new boolean[INITIAL_CAPACITY];
+
+	/**
+	 * For each level, the number of entries written so far.
+	 */
+	private int[] counts = new int[INITIAL_CAPACITY];
+
+	private int level;
+
+	private boolean awaitingValue;
+
+	private boolean done;
+
+	/**
+	 * Writes whatever separators are needed before a key and returns the
+	 * context in which to write it.
+	 */
+	private JsonContext beforeKey() throws IOException
+	{
+		if( ( level == 0 ) || !objects[level - 1] )
+			throw new IllegalStateException( "Keys can only be written in an object" );
+		if( awaitingValue )
+			throw new IllegalStateException( "Missing value for previous key" );
+
+		JsonContext containerContext = contexts[level - 1];
+		if( counts[level - 1]++ > 0 )
+			containerContext.comma();
+		else
+			containerContext.newline();
+		containerContext.indentNested();
+		return containerContext;
+	}
+
+	private void afterKey() throws IOException
+	{
+		contexts[level - 1].colon();
+		awaitingValue = true;
+	}
+
+	/**
+	 * Writes whatever separators are needed before a value and returns the
+	 * context in which to write it.
+	 */
+	private JsonContext beforeValue() throws IOException
+	{
+		if( level == 0 )
+		{
+			if( done )
+				throw new IllegalStateException( "A value has already been written at the top level" );
+			done = true;
+			return context;
+		}
+
+		JsonContext containerContext = contexts[level - 1];
+		if( objects[level - 1] )
+		{
+			if( !awaitingValue )
+				throw new IllegalStateException( "Values in an object must follow a key" );
+			awaitingValue = false;
+		}
+		else
+		{
+			if( counts[level - 1]++ > 0 )
+				containerContext.comma();
+			else
+				containerContext.newline();
+			containerContext.indentNested();
+		}
+
+		return containerContext.nest();
+	}
+
+	private void push( JsonContext containerContext, boolean object )
+	{
+		if( level == contexts.length )
+		{
+			int capacity = level * 2;
+			JsonContext[] newContexts = new JsonContext[capacity];
+			System.arraycopy( contexts, 0, newContexts, 0, level );
+			contexts = newContexts;
+			boolean[] newObjects = new boolean[capacity];
+			System.arraycopy( objects, 0, newObjects, 0, level );
+			objects = newObjects;
+			int[] newCounts = new int[capacity];
+			System.arraycopy( counts, 0, newCounts, 0, level );
+			counts = newCounts;
+		}
+
+		contexts[level] = containerContext;
+		objects[level] = object;
+		counts[level] = 0;
+		level++;
+	}
+
+	private void end( char c ) throws IOException
+	{
+		level--;
+		JsonContext containerContext = contexts[level];
+		contexts[level] = null;
+		if( counts[level] > 0 )
+		{
+			containerContext.newline();
+			containerContext.indent();
+		}
+		containerContext.out.append( c );
+	}
+}
@@ -0,0 +1,622 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+
+package com.threecrickets.jvm.json;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.threecrickets.jvm.json.internal.CharSequenceReader;
+import com.threecrickets.jvm.json.internal.MappedFile;
+
+/**
+ * A structural index for random access into large JSON files.
+ * <p>
+ * The index maps JSON Pointers (RFC 6901) to the byte ranges of values, for
+ * all values up to a maximum depth (the root is at depth 0). It is persisted
+ * in a sidecar file next to the JSON file, and is rebuilt automatically if the
+ * JSON file changes. Looking up a pointer decodes only the relevant byte
+ * range. Pointers deeper than the indexed depth are resolved by scanning from
+ * the deepest indexed ancestor, which skips over sibling values without
+ * decoding them.
+ * <p>
+ * The JSON file must be strict JSON in UTF-8. It is accessed via
+ * memory-mapping.
+ * <p>
+ * Once opened, an index can be used by several threads concurrently.
+ * 
+ * @author Tal Liron
+ */
+public class JsonIndex implements Closeable
+{
+	//
+	// Static operations
+	//
+
+	/**
+	 * Opens an index for a JSON file. If there is a valid sidecar index file
+	 * for the same maximum depth, it is loaded. Otherwise, the index is built
+	 * and the sidecar file is written if possible (failing to write it, for
+	 * example because the directory is read-only, is not an error).
+	 * 
+	 * @param file
+	 *        The JSON file
+	 * @param maxDepth
+	 *        The maximum depth of indexed values (0 to index just the root)
+	 * @return The index
+	 * @throws JsonSyntaxError
+	 *         In case of a JSON syntax error
+	 * @throws IOException
+	 *         In case of a read error
+	 * @see #getIndexFile(File)
+	 */
+	public static JsonIndex open( File file, int maxDepth ) throws JsonSyntaxError, IOException
+	{
+		if( maxDepth < 0 )
+			throw new IllegalArgumentException( "Max depth must be 0 or greater" );
+
+		JsonIndex index = new JsonIndex( file, maxDepth );
+		try
+		{
+			if( !index.load() )
+			{
+				index.build();
+				try
+				{
+					index.save();
+				}
+				catch( IOException x )
+				{
+					// The sidecar is only a cache
+				}
+			}
+		}
+		catch( JsonSyntaxError x )
+		{
+			index.close();
+			throw x;
+		}
+		return index;
+	}
+
+	/**
+	 * The sidecar index file for a JSON file: the same path with ".idx"
+	 * appended.
+	 * 
+	 * @param file
+	 *        The JSON file
+	 * @return The index file
+	 */
+	public static File getIndexFile( File file )
+	{
+		return new File( file.getPath() + ".idx" );
+	}
+
+	//
+	// Attributes
+	//
+
+	/**
+	 * The JSON file.
+	 */
+	public final File file;
+
+	/**
+	 * The maximum depth of indexed values.
+	 */
+	public final int maxDepth;
+
+	/**
+	 * The number of indexed values.
+	 * 
+	 * @return The number of indexed values
+	 */
+	public int size()
+	{
+		return entries.size();
+	}
+
+	//
+	// Operations
+	//
+
+	/**
+	 * Finds the byte range of a value.
+	 * 
+	 * @param pointer
+	 *        The JSON Pointer ("" for the root)
+	 * @return The start and end (exclusive) byte offsets, or null if not found
+	 * @throws JsonSyntaxError
+	 *         In case of a JSON syntax error
+	 */
+	public long[] find( String pointer ) throws JsonSyntaxError
+	{
+		long[] range = entries.get( pointer );
+		if( range != null )
+			return range;
+
+		if( ( pointer.length() > 0 ) && ( pointer.charAt( 0 ) != '/' ) )
+			throw new IllegalArgumentException( "JSON Pointer must be empty or start with '/': " + pointer );
+
+		// Find the deepest indexed ancestor
+		String ancestor = pointer;
+		do
+		{
+			ancestor = ancestor.substring( 0, ancestor.lastIndexOf( '/' ) );
+			range = entries.get( ancestor );
+		}
+		while( range == null );
+
+		// Navigate from it
+		String[] tokens = pointer.substring( ancestor.length() + 1 ).split( "/", -1 );
+		long position = range[0];
+		for( String token : tokens )
+		{
+			token = token.replace( "~1", "/" ).replace( "~0", "~" );
+			position = skipWhitespace( position );
+			byte b = at( position );
+			if( b == '{' )
+			{
+				position = skipWhitespace( position + 1 );
+				if( at( position ) == '}' )
+					return null;
+				for( ;; )
+				{
+					long keyEnd = skipKey( position );
+					String key = readKey( position, keyEnd );
+					position = expect( ':', keyEnd );
+					if( key.equals( token ) )
+						break;
+					position = next( skipValue( position ), '}' );
+					if( position == -1 )
+						return null;
+				}
+			}
+			else if( b == '[' )
+			{
+				int target;
+				try
+				{
+					target = Integer.parseInt( token );
+				}
+				catch( NumberFormatException x )
+				{
+					return null;
+				}
+				position = skipWhitespace( position + 1 );
+				if( ( target < 0 ) || ( at( position ) == ']' ) )
+					return null;
+				for( int i = 0; i < target; i++ )
+				{
+					position = next( skipValue( position ), ']' );
+					if( position == -1 )
+						return null;
+				}
+			}
+			else
+				return null;
+		}
+
+		long start = skipWhitespace( position );
+		return new long[]
+		{
+			start, skipValue( start )
+		};
+	}
+
+	/**
+	 * Decodes a value.
+	 * 
+	 * @param pointer
+	 *        The JSON Pointer ("" for the root)
+	 * @param implementation
+	 *        The implementation
+	 * @param allowTransform
+	 *        Whether to allow transformations
+	 * @return The implementation-specific value, or null if not found
+	 * @throws JsonSyntaxError
+	 *         In case of a JSON syntax error
+	 * @throws IOException
+	 *         In case of a read error, or if the value is 2 GB or larger
+	 */
+	public Object get( String pointer, JsonImplementation implementation, boolean allowTransform ) throws JsonSyntaxError, IOException
+	{
+		long[] range = find( pointer );
+		if( range == null )
+			return null;
+		if( range[1] - range[0] > Integer.MAX_VALUE )
+			throw new IOException( "Value is too large to decode: " + pointer + " (" + ( range[1] - range[0] ) + " bytes)" );
+		return implementation.createDecoder( new CharSequenceReader( mapped.decode( range[0], range[1] ) ), allowTransform ).decodeValue();
+	}
+
+	/**
+	 * Decodes a value using the current implementation, without
+	 * transformations.
+	 * 
+	 * @param pointer
+	 *        The JSON Pointer ("" for the root)
+	 * @return The implementation-specific value, or null if not found
+	 * @throws JsonSyntaxError
+	 *         In case of a JSON syntax error
+	 * @throws IOException
+	 *         In case of a read error, or if the value is 2 GB or larger
+	 * @see Json#getImplementation()
+	 */
+	public Object get( String pointer ) throws JsonSyntaxError, IOException
+	{
+		return get( pointer, Json.getImplementation(), false );
+	}
+
+	/**
+	 * Writes the sidecar index file. It is first written to a temporary file in
+	 * the same directory, which then replaces the sidecar, so that a failed
+	 * write never leaves a truncated sidecar behind.
+	 * 
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void save() throws IOException
+	{
+		File indexFile = getIndexFile( file );
+		File tempFile = File.createTempFile( indexFile.getName(), ".tmp", indexFile.getAbsoluteFile().getParentFile() );
+		boolean saved = false;
+		try
+		{
+			write( tempFile );
+			// On some platforms renaming does not replace an existing file
+			if( !tempFile.renameTo( indexFile ) && ( !indexFile.delete() || !tempFile.renameTo( indexFile ) ) )
+				throw new IOException( "Could not rename " + tempFile + " to " + indexFile );
+			saved = true;
+		}
+		finally
+		{
+			if( !saved )
+				tempFile.delete();
+		}
+	}
+
+	/**
+	 * Closes the JSON file.
+	 * 
+	 * @throws IOException
+	 *         In case of a close error
+	 */
+	public void close() throws IOException
+	{
+		randomAccessFile.close();
+	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	private static final int MAGIC = 0x4A53494E;
+
+	private static final int VERSION = 2;
+
+	private static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+	private final RandomAccessFile randomAccessFile;
+
+	private final MappedFile mapped;
+
+	private final long lastModified;
+
+	private final Map<String, long[]> entries = new HashMap<String, long[]>();
+
+	private JsonIndex( File file, int maxDepth ) throws IOException
+	{
+		this.file = file;
+		this.maxDepth = maxDepth;
+		lastModified = file.lastModified();
+		randomAccessFile = new RandomAccessFile( file, "r" );
+		try
+		{
+			mapped = new MappedFile( randomAccessFile.getChannel() );
+		}
+		catch( IOException x )
+		{
+			randomAccessFile.close();
+			throw x;
+		}
+	}
+
+	/**
+	 * Writes the index. Keys are written as a length and UTF-8 bytes, because
+	 * {@link DataOutputStream#writeUTF(String)} is limited to 65535 bytes.
+	 */
+	private void write( File indexFile ) throws IOException
+	{
+		DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( indexFile ) ) );
+		try
+		{
+			out.writeInt( MAGIC );
+			out.writeInt( VERSION );
+			out.writeLong( mapped.size );
+			out.writeLong( lastModified );
+			out.writeInt( maxDepth );
+			out.writeInt( entries.size() );
+			for( Map.Entry<String, long[]> entry : entries.entrySet() )
+			{
+				byte[] key = entry.getKey().getBytes( UTF8 );
+				out.writeInt( key.length );
+				out.write( key );
+				out.writeLong( entry.getValue()[0] );
+				out.writeLong( entry.getValue()[1] );
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	/**
+	 * Loads the sidecar index file if it is valid.
+	 * 
+	 * @return False if there is no valid index file
+	 */
+	private boolean load()
+	{
+		File indexFile = getIndexFile( file );
+		if( !indexFile.exists() )
+			return false;
+
+		try
+		{
+			DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( indexFile ) ) );
+			try
+			{
+				if( ( in.readInt() != MAGIC ) || ( in.readInt() != VERSION ) || ( in.readLong() != mapped.size ) || ( in.readLong() != lastModified ) || ( in.readInt() != maxDepth ) )
+					return false;
+				for( int i = in.readInt(); i > 0; i-- )
+				{
+					int length = in.readInt();
+					if( ( length < 0 ) || ( length > mapped.size ) )
+						throw new IOException( "Corrupt index file" );
+					byte[] key = new byte[length];
+					in.readFully( key );
+					entries.put( new String( key, UTF8 ), new long[]
+					{
+						in.readLong(), in.readLong()
+					} );
+				}
+				return true;
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		catch( IOException x )
+		{
+			entries.clear();
+			return false;
+		}
+	}
+
+	private void build() throws JsonSyntaxError
+	{
+		long end = skipWhitespace( index( 0, "", 0 ) );
+		if( end < mapped.size )
+			throw error( "Unexpected text after value", end );
+	}
+
+	/**
+	 * Indexes a value and, if not too deep, its children.
+	 * 
+	 * @return The position after the value
+	 */
+	private long index( long position, String pointer, int depth ) throws JsonSyntaxError
+	{
+		long start = skipWhitespace( position );
+		long end;
+		byte b = at( start );
+		if( ( depth < maxDepth ) && ( b == '{' ) )
+		{
+			position = skipWhitespace( start + 1 );
+			if( at( position ) == '}' )
+				end = position + 1;
+			else
+			{
+				do
+				{
+					long keyEnd = skipKey( position );
+					String key = readKey( position, keyEnd );
+					end = index( expect( ':', keyEnd ), pointer + '/' + key.replace( "~", "~0" ).replace( "/", "~1" ), depth + 1 );
+					position = next( end, '}' );
+				}
+				while( position != -1 );
+				end = skipWhitespace( end ) + 1;
+			}
+		}
+		else if( ( depth < maxDepth ) && ( b == '[' ) )
+		{
+			position = skipWhitespace( start + 1 );
+			if( at( position ) == ']' )
+				end = position + 1;
+			else
+			{
+				int i = 0;
+				do
+				{
+					end = index( position, pointer + '/' + i++, depth + 1 );
+					position = next( end, ']' );
+				}
+				while( position != -1 );
+				end = skipWhitespace( end ) + 1;
+			}
+		}
+		else
+			end = skipValue( start );
+
+		entries.put( pointer, new long[]
+		{
+			start, end
+		} );
+		return end;
+	}
+
+	/**
+	 * Consumes the separator after a value in a container.
+	 * 
+	 * @return The position of the next entry, or -1 if the container has
+	 *         ended
+	 */
+	private long next( long position, char close ) throws JsonSyntaxError
+	{
+		position = skipWhitespace( position );
+		byte b = at( position );
+		if( b == close )
+			return -1;
+		if( b != ',' )
+			throw error( "Expected a ',' or '" + close + "'", position );
+		return skipWhitespace( position + 1 );
+	}
+
+	private long expect( char c, long position ) throws JsonSyntaxError
+	{
+		position = skipWhitespace( position );
+		if( at( position ) != c )
+			throw error( "Expected a '" + c + "'", position );
+		return position + 1;
+	}
+
+	private long skipWhitespace( long position )
+	{
+		while( ( position < mapped.size ) && ( ( at( position ) & 0xff ) <= ' ' ) )
+			position++;
+		return position;
+	}
+
+	private long skipValue( long position ) throws JsonSyntaxError
+	{
+		position = skipWhitespace( position );
+		byte b = at( position );
+		if( ( b == '{' ) || ( b == '[' ) )
+		{
+			int depth = 0;
+			for( ; position < mapped.size; position++ )
+			{
+				b = at( position );
+				if( b == '"' )
+					position = skipString( position ) - 1;
+				else if( ( b == '{' ) || ( b == '[' ) )
+					depth++;
+				else if( ( ( b == '}' ) || ( b == ']' ) ) && ( --depth == 0 ) )
+					return position + 1;
+			}
+			throw error( "Unterminated value", position );
+		}
+		else if( b == '"' )
+			return skipString( position );
+		else
+		{
+			long start = position;
+			while( ( position < mapped.size ) && ( ( b = at( position ) ) != ',' ) && ( b != '}' ) && ( b != ']' ) && ( ( b & 0xff ) > ' ' ) )
+				position++;
+			if( position == start )
+				throw error( "Missing value", position );
+			return position;
+		}
+	}
+
+	private long skipString( long position ) throws JsonSyntaxError
+	{
+		for( position++; position < mapped.size; position++ )
+		{
+			byte b = at( position );
+			if( b == '\\' )
+				position++;
+			else if( b == '"' )
+				return position + 1;
+		}
+		throw error( "Unterminated string", position );
+	}
+
+	/**
+	 * @return The position after the key
+	 */
+	private long skipKey( long position ) throws JsonSyntaxError
+	{
+		if( at( position ) != '"' )
+			throw error( "Expected a key", position );
+		return skipString( position );
+	}
+
+	private String readKey( long position, long end ) throws JsonSyntaxError
+	{
+		String key = mapped.decode( position + 1, end - 1 ).toString();
+		if( key.indexOf( '\\' ) == -1 )
+			return key;
+
+		StringBuilder r = new StringBuilder( key.length() );
+		try
+		{
+			for( int i = 0, length = key.length(); i < length; i++ )
+			{
+				char c = key.charAt( i );
+				if( c == '\\' )
+				{
+					c = key.charAt( ++i );
+					switch( c )
+					{
+						case 'b':
+							c = '\b';
+							break;
+						case 't':
+							c = '\t';
+							break;
+						case 'n':
+							c = '\n';
+							break;
+						case 'f':
+							c = '\f';
+							break;
+						case 'r':
+							c = '\r';
+							break;
+						case 'u':
+							c = (char) Integer.parseInt( key.substring( i + 1, i + 5 ), 16 );
+							i += 4;
+							break;
+					}
+				}
+				r.append( c );
+			}
+		}
+		catch( RuntimeException x )
+		{
+			throw error( "Illegal escape", position );
+		}
+		return r.toString();
+	}
+
+	private byte at( long position )
+	{
+		return position < mapped.size ? mapped.get( position ) : 0;
+	}
+
+	private JsonSyntaxError error( String message, long position )
+	{
+		return new JsonSyntaxError( message + " at byte " + position, 0, 0 );
+	}
+}
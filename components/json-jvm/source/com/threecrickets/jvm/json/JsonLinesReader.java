@@ -0,0 +1,423 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+
+package com.threecrickets.jvm.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.threecrickets.jvm.json.internal.CharSequenceReader;
+import com.threecrickets.jvm.json.internal.Tasks;
+
+/**
+ * Reads a stream of JSON objects and arrays, such as newline-delimited JSON
+ * (NDJSON, also known as JSON Lines). Values may also be concatenated without
+ * newlines between them, or span several lines.
+ * <p>
+ * The text is read in large blocks, which are always cut at a boundary
+ * between values. If there is an executor, the blocks are decoded in
+ * parallel. Blocks are only read as values are requested, and at most
+ * {@link #getMaxPendingBlocks()} are decoded ahead of the consumer, so memory
+ * use is bounded even if the consumer is slow.
+ * <p>
+ * Instances are not thread-safe.
+ * 
+ * @author Tal Liron
+ * @see Json#createLinesReader(Reader, boolean)
+ */
+public class JsonLinesReader implements Closeable
+{
+	//
+	// Construction
+	//
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param implementation
+	 *        The implementation
+	 * @param reader
+	 *        The reader
+	 * @param allowTransform
+	 *        Whether to allow transformations
+	 * @param executor
+	 *        The executor, or null to decode in the current thread (always
+	 *        the case for thread-bound implementations)
+	 */
+	public JsonLinesReader( JsonImplementation implementation, Reader reader, boolean allowTransform, ExecutorService executor )
+	{
+		this.implementation = implementation;
+		this.reader = reader;
+		this.allowTransform = allowTransform;
+		this.executor = Tasks.isThreadBound( implementation ) ? null : executor;
+		maxPendingBlocks = Runtime.getRuntime().availableProcessors() * 2;
+	}
+
+	//
+	// Attributes
+	//
+
+	/**
+	 * The number of chars to read per block. Defaults to 1,048,576.
+	 * 
+	 * @return The block size
+	 * @see #setBlockSize(int)
+	 */
+	public int getBlockSize()
+	{
+		return blockSize;
+	}
+
+	/**
+	 * The number of chars to read per block. Blocks are cut at the last
+	 * boundary between values, and grown if a single value does not fit.
+	 * Must be set before reading.
+	 * 
+	 * @param blockSize
+	 *        The block size
+	 * @see #getBlockSize()
+	 */
+	public void setBlockSize( int blockSize )
+	{
+		if( blockSize < 1 )
+			throw new IllegalArgumentException( "Block size must be greater than 0" );
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * The maximum number of blocks decoded ahead of the consumer. Defaults to
+	 * twice the number of processors.
+	 * 
+	 * @return The maximum number of pending blocks
+	 * @see #setMaxPendingBlocks(int)
+	 */
+	public int getMaxPendingBlocks()
+	{
+		return maxPendingBlocks;
+	}
+
+	/**
+	 * The maximum number of blocks decoded ahead of the consumer. Has no
+	 * effect if there is no executor.
+	 * 
+	 * @param maxPendingBlocks
+	 *        The maximum number of pending blocks
+	 * @see #getMaxPendingBlocks()
+	 */
+	public void setMaxPendingBlocks( int maxPendingBlocks )
+	{
+		if( maxPendingBlocks < 1 )
+			throw new IllegalArgumentException( "Max pending blocks must be greater than 0" );
+		this.maxPendingBlocks = maxPendingBlocks;
+	}
+
+	/**
+	 * Whether values are returned in the order in which they appear in the
+	 * text. Defaults to true.
+	 * 
+	 * @return True if ordered
+	 * @see #setOrdered(boolean)
+	 */
+	public boolean isOrdered()
+	{
+		return ordered;
+	}
+
+	/**
+	 * Whether values are returned in the order in which they appear in the
+	 * text. When false, blocks are returned as soon as they are decoded, which
+	 * can improve throughput when blocks vary in cost. Values within a block
+	 * are always in order. Must be set before reading.
+	 * 
+	 * @param ordered
+	 *        True if ordered
+	 * @see #isOrdered()
+	 */
+	public void setOrdered( boolean ordered )
+	{
+		this.ordered = ordered;
+	}
+
+	//
+	// Operations
+	//
+
+	/**
+	 * Whether there are more values.
+	 * 
+	 * @return True if there are more values
+	 * @throws JsonSyntaxError
+	 *         In case of a JSON syntax error
+	 * @throws IOException
+	 *         In case of a read error
+	 */
+	public boolean hasNext() throws JsonSyntaxError, IOException
+	{
+		while( !values.hasNext() )
+		{
+			List<Object> block = nextBlock();
+			if( block == null )
+				return false;
+			values = block.iterator();
+		}
+		return true;
+	}
+
+	/**
+	 * The next value.
+	 * 
+	 * @return An implementation-specific object or an array, or null if there
+	 *         are no more values
+	 * @throws JsonSyntaxError
+	 *         In case of a JSON syntax error
+	 * @throws IOException
+	 *         In case of a read error
+	 */
+	public Object next() throws JsonSyntaxError, IOException
+	{
+		return hasNext() ? values.next() : null;
+	}
+
+	/**
+	 * Cancels pending blocks and closes the reader.
+	 * 
+	 * @throws IOException
+	 *         In case of a close error
+	 */
+	public void close() throws IOException
+	{
+		Tasks.cancel( pending );
+		pending.clear();
+		values = EMPTY;
+		eof = true;
+		reader.close();
+	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	private static final Iterator<Object> EMPTY = Collections.emptyList().iterator();
+
+	private final JsonImplementation implementation;
+
+	private final Reader reader;
+
+	private final boolean allowTransform;
+
+	private final ExecutorService executor;
+
+	private int blockSize = 1024 * 1024;
+
+	private int maxPendingBlocks;
+
+	private boolean ordered = true;
+
+	private Iterator<Object> values = EMPTY;
+
+	private final ArrayDeque<Future<List<Object>>> pending = new ArrayDeque<Future<List<Object>>>();
+
+	private CompletionService<List<Object>> completionService;
+
+	private char[] buffer;
+
+	private int count;
+
+	private int line = 1;
+
+	private boolean eof;
+
+	/**
+	 * The decoded values of the next block, or null if there are no more.
+	 */
+	private List<Object> nextBlock() throws JsonSyntaxError, IOException
+	{
+		if( executor == null )
+		{
+			Block block = readBlock();
+			return block != null ? block.call() : null;
+		}
+
+		if( !ordered && ( completionService == null ) )
+			completionService = new ExecutorCompletionService<List<Object>>( executor );
+
+		while( !eof && ( pending.size() < maxPendingBlocks ) )
+		{
+			Block block = readBlock();
+			if( block == null )
+				break;
+			pending.add( ordered ? executor.submit( block ) : completionService.submit( block ) );
+		}
+
+		if( pending.isEmpty() )
+			return null;
+
+		Future<List<Object>> future;
+		if( ordered )
+			future = pending.poll();
+		else
+		{
+			try
+			{
+				future = completionService.take();
+			}
+			catch( InterruptedException x )
+			{
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+			pending.remove( future );
+		}
+
+		try
+		{
+			return Tasks.get( future, JsonSyntaxError.class );
+		}
+		catch( JsonSyntaxError x )
+		{
+			close();
+			throw x;
+		}
+	}
+
+	/**
+	 * Reads the next block, cut at the last boundary between values.
+	 */
+	private Block readBlock() throws IOException
+	{
+		if( buffer == null )
+			buffer = new char[blockSize];
+
+		for( ;; )
+		{
+			while( !eof && ( count < buffer.length ) )
+			{
+				int read = reader.read( buffer, count, buffer.length - count );
+				if( read == -1 )
+					eof = true;
+				else
+					count += read;
+			}
+
+			if( eof && ( count == 0 ) )
+				return null;
+
+			int boundary = eof ? count : findBoundary();
+			if( boundary > 0 )
+			{
+				Block block = new Block( new String( buffer, 0, boundary ), line );
+				line += boundaryLines;
+				count -= boundary;
+				System.arraycopy( buffer, boundary, buffer, 0, count );
+				return block;
+			}
+
+			// A single value is larger than the buffer
+			buffer = Arrays.copyOf( buffer, buffer.length * 2 );
+		}
+	}
+
+	/**
+	 * The number of newlines before the boundary found by the last call to
+	 * {@link #findBoundary()}.
+	 */
+	private int boundaryLines;
+
+	/**
+	 * Finds the position after the last newline or closing bracket that is
+	 * outside of any value.
+	 */
+	private int findBoundary()
+	{
+		int boundary = 0;
+		int lines = 0;
+		boundaryLines = 0;
+		int depth = 0;
+		char quote = 0;
+		for( int i = 0; i < count; i++ )
+		{
+			char c = buffer[i];
+			if( c == '\n' )
+			{
+				lines++;
+				if( ( depth == 0 ) && ( quote == 0 ) )
+				{
+					boundary = i + 1;
+					boundaryLines = lines;
+				}
+			}
+			else if( quote != 0 )
+			{
+				if( c == '\\' )
+					i++;
+				else if( c == quote )
+					quote = 0;
+			}
+			else if( ( c == '"' ) || ( c == '\'' ) )
+				quote = c;
+			else if( ( c == '{' ) || ( c == '[' ) || ( c == '(' ) )
+				depth++;
+			else if( ( c == '}' ) || ( c == ']' ) || ( c == ')' ) )
+			{
+				if( ( depth > 0 ) && ( --depth == 0 ) )
+				{
+					boundary = i + 1;
+					boundaryLines = lines;
+				}
+			}
+		}
+		return boundary;
+	}
+
+	/**
+	 * Decodes all the values in a block.
+	 */
+	private class Block implements Callable<List<Object>>
+	{
+		public Block( String text, int line )
+		{
+			this.text = text;
+			this.line = line;
+		}
+
+		public List<Object> call() throws JsonSyntaxError, IOException
+		{
+			List<Object> values = new ArrayList<Object>();
+			JsonDecoder decoder = implementation.createDecoder( new CharSequenceReader( text ), allowTransform );
+			try
+			{
+				while( decoder.hasMore() )
+					values.add( decoder.decode() );
+			}
+			catch( JsonSyntaxError x )
+			{
+				throw new JsonSyntaxError( x.getMessage(), line + x.getLine() - 1, x.getColumn() );
+			}
+			return values;
+		}
+
+		private final String text;
+
+		private final int line;
+	}
+}
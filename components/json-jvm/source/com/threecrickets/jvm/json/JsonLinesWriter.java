@@ -0,0 +1,255 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+
+package com.threecrickets.jvm.json;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Writes a stream of values as newline-delimited JSON (NDJSON, also known as
+ * JSON Lines), one compact value per line.
+ * <p>
+ * Values are encoded into a single reused buffer, which is written to the
+ * output in one call whenever it reaches {@link #getBufferSize()} chars. If a
+ * value fails to encode, its partial line is discarded from the buffer.
+ * <p>
+ * Instances are not thread-safe.
+ * 
+ * @author Tal Liron
+ * @see Json#createLinesWriter(Writer)
+ */
+public class JsonLinesWriter implements Closeable, Flushable
+{
+	//
+	// Construction
+	//
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param implementation
+	 *        The implementation
+	 * @param out
+	 *        Where to write the JSON
+	 */
+	public JsonLinesWriter( JsonImplementation implementation, Writer out )
+	{
+		this.out = out;
+		context = implementation.createContext( buffer, false, false, 0 );
+	}
+
+	//
+	// Attributes
+	//
+
+	/**
+	 * The context used for encoding values. Can be used to change encoding
+	 * settings.
+	 */
+	public final JsonContext context;
+
+	/**
+	 * The number of chars to buffer before writing. Defaults to 65,536.
+	 * 
+	 * @return The buffer size
+	 * @see #setBufferSize(int)
+	 */
+	public int getBufferSize()
+	{
+		return bufferSize;
+	}
+
+	/**
+	 * The number of chars to buffer before writing.
+	 * 
+	 * @param bufferSize
+	 *        The buffer size
+	 * @see #getBufferSize()
+	 */
+	public void setBufferSize( int bufferSize )
+	{
+		if( bufferSize < 1 )
+			throw new IllegalArgumentException( "Buffer size must be greater than 0" );
+		this.bufferSize = bufferSize;
+	}
+
+	//
+	// Operations
+	//
+
+	/**
+	 * Writes a value, followed by a newline. If the value fails to encode,
+	 * nothing is written.
+	 * 
+	 * @param object
+	 *        The value
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void write( Object object ) throws IOException
+	{
+		int start = buffer.length;
+		boolean encoded = false;
+		try
+		{
+			context.encode( object );
+			buffer.write( '\n' );
+			encoded = true;
+		}
+		finally
+		{
+			if( !encoded )
+				buffer.length = start;
+		}
+		if( buffer.length >= bufferSize )
+			drain();
+	}
+
+	/**
+	 * Writes all values, each followed by a newline.
+	 * 
+	 * @param objects
+	 *        The values
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void writeAll( Iterable<?> objects ) throws IOException
+	{
+		for( Object object : objects )
+			write( object );
+	}
+
+	/**
+	 * Writes whatever is buffered and flushes the output.
+	 * 
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void flush() throws IOException
+	{
+		drain();
+		out.flush();
+	}
+
+	/**
+	 * Writes whatever is buffered and closes the output.
+	 * 
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void close() throws IOException
+	{
+		drain();
+		out.close();
+	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	private final Writer out;
+
+	private final Buffer buffer = new Buffer();
+
+	private int bufferSize = 64 * 1024;
+
+	private void drain() throws IOException
+	{
+		if( buffer.length == 0 )
+			return;
+		out.write( buffer.chars, 0, buffer.length );
+		buffer.length = 0;
+	}
+
+	/**
+	 * A growable, unsynchronized char buffer, which can be written to the
+	 * output without copying.
+	 */
+	private static class Buffer extends Writer
+	{
+		public char[] chars = new char[1024];
+
+		public int length;
+
+		@Override
+		public void write( int c )
+		{
+			ensure( 1 );
+			chars[length++] = (char) c;
+		}
+
+		@Override
+		public void write( char[] c, int offset, int length )
+		{
+			ensure( length );
+			System.arraycopy( c, offset, chars, this.length, length );
+			this.length += length;
+		}
+
+		@Override
+		public void write( String s, int offset, int length )
+		{
+			ensure( length );
+			s.getChars( offset, offset + length, chars, this.length );
+			this.length += length;
+		}
+
+		@Override
+		public Writer append( char c )
+		{
+			write( c );
+			return this;
+		}
+
+		@Override
+		public Writer append( CharSequence csq )
+		{
+			if( csq == null )
+				csq = "null";
+			return append( csq, 0, csq.length() );
+		}
+
+		@Override
+		public Writer append( CharSequence csq, int start, int end )
+		{
+			if( csq == null )
+				csq = "null";
+			if( csq instanceof String )
+				write( (String) csq, start, end - start );
+			else
+			{
+				ensure( end - start );
+				for( int i = start; i < end; i++ )
+					chars[length++] = csq.charAt( i );
+			}
+			return this;
+		}
+
+		@Override
+		public void flush()
+		{
+		}
+
+		@Override
+		public void close()
+		{
+		}
+
+		private void ensure( int extra )
+		{
+			if( length + extra > chars.length )
+				chars = Arrays.copyOf( chars, Math.max( chars.length * 2, length + extra ) );
+		}
+	}
+}
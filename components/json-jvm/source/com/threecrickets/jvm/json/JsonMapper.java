@@ -0,0 +1,693 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+
+package com.threecrickets.jvm.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import com.threecrickets.jvm.json.internal.CharSequenceReader;
+import com.threecrickets.jvm.json.internal.Tasks;
+
+/**
+ * An immutable, thread-safe, preconfigured JSON encoder and decoder.
+ * <p>
+ * Unlike the static methods in {@link Json}, which take their options as
+ * arguments and look up the implementation on every call, a mapper is
+ * configured once via a {@link Builder} and then used as is. Different parts of
+ * an application can use differently configured mappers at the same time.
+ * <p>
+ * A mapper has its own encoder table: any extra encoders, followed by the
+ * implementation's encoders. If the implementation's encoders are changed at
+ * runtime (see {@link BaseJsonImplementation#addEncoder(JsonEncoder, int)}),
+ * the table is rebuilt on next use.
+ * <p>
+ * Note that contexts are created directly by the mapper, so custom
+ * {@link JsonContext} subclasses returned by the implementation are not used.
+ * Decoders, however, are created by the implementation (so that, for example,
+ * implementation-specific decoding modes apply) and then configured by the
+ * mapper.
+ * 
+ * @author Tal Liron
+ */
+public class JsonMapper
+{
+	//
+	// Static operations
+	//
+
+	/**
+	 * Creates a builder.
+	 * 
+	 * @return A new builder
+	 */
+	public static Builder builder()
+	{
+		return new Builder();
+	}
+
+	//
+	// Attributes
+	//
+
+	/**
+	 * The implementation, which uses the mapper's encoder table.
+	 * 
+	 * @return The implementation
+	 */
+	public JsonImplementation getImplementation()
+	{
+		return implementation;
+	}
+
+	/**
+	 * Whether to expand the JSON with newlines, indents, and spaces.
+	 * 
+	 * @return True if expanding
+	 */
+	public boolean isExpand()
+	{
+		return expand;
+	}
+
+	/**
+	 * Whether to allow programming language code (non-standard JSON).
+	 * 
+	 * @return True if allowing code
+	 */
+	public boolean isAllowCode()
+	{
+		return allowCode;
+	}
+
+	/**
+	 * Whether to allow transformations when decoding.
+	 * 
+	 * @return True if allowing transformations
+	 */
+	public boolean isAllowTransform()
+	{
+		return allowTransform;
+	}
+
+	//
+	// Operations
+	//
+
+	/**
+	 * Creates a configured context.
+	 * 
+	 * @param out
+	 *        Where to write the JSON
+	 * @return A context
+	 */
+	public JsonContext createContext( Appendable out )
+	{
+		return implementation.createContext( out, expand, allowCode, 0 );
+	}
+
+	/**
+	 * Creates a configured decoder.
+	 * 
+	 * @param reader
+	 *        The reader
+	 * @return A decoder
+	 */
+	public JsonDecoder createDecoder( Reader reader )
+	{
+		return implementation.createDecoder( reader, allowTransform );
+	}
+
+	/**
+	 * Creates a configured generator.
+	 * 
+	 * @param out
+	 *        Where to write the JSON
+	 * @return A generator
+	 */
+	public JsonGenerator createGenerator( Appendable out )
+	{
+		return new JsonGenerator( createContext( out ) );
+	}
+
+	/**
+	 * Encodes an object into JSON.
+	 * 
+	 * @param object
+	 *        The object to encode
+	 * @return The JSON text
+	 */
+	public String write( Object object )
+	{
+		// A nested call (from an encoder or a transformer) must not reuse the
+		// buffer of the call it is nested in
+		Buffer buffer = buffers.get();
+		boolean nested = buffer.inUse;
+		StringBuilder out = nested ? new StringBuilder() : buffer.builder;
+		buffer.inUse = true;
+		try
+		{
+			out.setLength( 0 );
+			write( object, out );
+			return out.toString();
+		}
+		catch( IOException x )
+		{
+			// There should never be exceptions with a StringBuilder
+			return out.toString();
+		}
+		finally
+		{
+			if( !nested )
+			{
+				buffer.inUse = false;
+				if( out.capacity() > MAX_BUFFER_SIZE )
+					buffer.builder = new StringBuilder();
+			}
+		}
+	}
+
+	/**
+	 * Encodes an object into JSON.
+	 * 
+	 * @param object
+	 *        The object to encode
+	 * @param out
+	 *        Where to write the JSON
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public void write( Object object, Appendable out ) throws IOException
+	{
+		createContext( out ).encode( object );
+	}
+
+	/**
+	 * Decodes a JSON object or array.
+	 * 
+	 * @param text
+	 *        The JSON text
+	 * @return An implementation-specific object or an array
+	 * @throws JsonSyntaxError
+	 *         In case of a JSON syntax error
+	 */
+	public Object read( CharSequence text ) throws JsonSyntaxError
+	{
+		try
+		{
+			return read( new CharSequenceReader( text ) );
+		}
+		catch( IOException x )
+		{
+			// There should never be exceptions with a CharSequenceReader
+			return null;
+		}
+	}
+
+	/**
+	 * Decodes a JSON object or array.
+	 * 
+	 * @param reader
+	 *        The reader
+	 * @return An implementation-specific object or an array
+	 * @throws JsonSyntaxError
+	 *         In case of a JSON syntax error
+	 * @throws IOException
+	 *         In case of a read error
+	 */
+	public Object read( Reader reader ) throws JsonSyntaxError, IOException
+	{
+		return createDecoder( reader ).decode();
+	}
+
+	//
+	// Builder
+	//
+
+	/**
+	 * Builds {@link JsonMapper} instances. Not thread-safe.
+	 */
+	public static class Builder
+	{
+		/**
+		 * The implementation. Defaults to {@link Json#getImplementation()} at
+		 * the time of building.
+		 * 
+		 * @param implementation
+		 *        The implementation
+		 * @return This builder
+		 */
+		public Builder implementation( JsonImplementation implementation )
+		{
+			this.implementation = implementation;
+			return this;
+		}
+
+		/**
+		 * Adds an encoder, which will take precedence over the
+		 * implementation's encoders. Encoders added earlier take precedence
+		 * over those added later.
+		 * 
+		 * @param encoder
+		 *        The encoder
+		 * @return This builder
+		 */
+		public Builder encoder( JsonEncoder encoder )
+		{
+			encoders.add( encoder );
+			return this;
+		}
+
+		/**
+		 * Whether to expand the JSON with newlines, indents, and spaces.
+		 * Defaults to false.
+		 * 
+		 * @param expand
+		 *        True to expand
+		 * @return This builder
+		 */
+		public Builder expand( boolean expand )
+		{
+			this.expand = expand;
+			return this;
+		}
+
+		/**
+		 * Whether to allow programming language code (non-standard JSON).
+		 * Defaults to false.
+		 * 
+		 * @param allowCode
+		 *        True to allow code
+		 * @return This builder
+		 */
+		public Builder allowCode( boolean allowCode )
+		{
+			this.allowCode = allowCode;
+			return this;
+		}
+
+		/**
+		 * Whether to allow transformations when decoding. Defaults to false.
+		 * 
+		 * @param allowTransform
+		 *        True to allow transformations
+		 * @return This builder
+		 */
+		public Builder allowTransform( boolean allowTransform )
+		{
+			this.allowTransform = allowTransform;
+			return this;
+		}
+
+		/**
+		 * @param decimalPlaces
+		 *        The maximum number of digits after the decimal point, or -1
+		 * @return This builder
+		 * @see JsonContext#setDecimalPlaces(int)
+		 */
+		public Builder decimalPlaces( int decimalPlaces )
+		{
+			this.decimalPlaces = decimalPlaces;
+			significantDigits = -1;
+			return this;
+		}
+
+		/**
+		 * @param significantDigits
+		 *        The maximum number of significant digits, or -1
+		 * @return This builder
+		 * @see JsonContext#setSignificantDigits(int)
+		 */
+		public Builder significantDigits( int significantDigits )
+		{
+			this.significantDigits = significantDigits;
+			decimalPlaces = -1;
+			return this;
+		}
+
+		/**
+		 * @param flushInterval
+		 *        The flush interval, or 0 to never flush
+		 * @return This builder
+		 * @see JsonContext#setFlushInterval(int)
+		 */
+		public Builder flushInterval( int flushInterval )
+		{
+			this.flushInterval = flushInterval;
+			return this;
+		}
+
+		/**
+		 * @param base64Bytes
+		 *        True to encode bytes as Base64
+		 * @return This builder
+		 * @see JsonContext#setBase64Bytes(boolean)
+		 */
+		public Builder base64Bytes( boolean base64Bytes )
+		{
+			this.base64Bytes = base64Bytes;
+			return this;
+		}
+
+		/**
+		 * @param executor
+		 *        The executor or null
+		 * @return This builder
+		 * @see JsonContext#setExecutor(ExecutorService)
+		 */
+		public Builder executor( ExecutorService executor )
+		{
+			this.executor = executor;
+			return this;
+		}
+
+		/**
+		 * @param parallelThreshold
+		 *        The parallel threshold
+		 * @return This builder
+		 * @see JsonContext#setParallelThreshold(int)
+		 */
+		public Builder parallelThreshold( int parallelThreshold )
+		{
+			this.parallelThreshold = parallelThreshold;
+			return this;
+		}
+
+		/**
+		 * @param base64Strings
+		 *        True to decode Base64 strings
+		 * @return This builder
+		 * @see JsonDecoder#setBase64Strings(boolean)
+		 */
+		public Builder base64Strings( boolean base64Strings )
+		{
+			this.base64Strings = base64Strings;
+			return this;
+		}
+
+		/**
+		 * @param rawKeys
+		 *        The keys, or null for none
+		 * @return This builder
+		 * @see JsonDecoder#setRawKeys(Collection)
+		 */
+		public Builder rawKeys( Collection<String> rawKeys )
+		{
+			this.rawKeys = rawKeys != null ? new HashSet<String>( rawKeys ) : null;
+			return this;
+		}
+
+		/**
+		 * Builds the mapper. Invalid settings are reported here.
+		 * 
+		 * @return A new mapper
+		 * @throws IllegalArgumentException
+		 *         In case of an invalid setting
+		 */
+		public JsonMapper build()
+		{
+			if( decimalPlaces < -1 )
+				throw new IllegalArgumentException( "Decimal places must be -1 or greater" );
+			if( ( significantDigits != -1 ) && ( significantDigits < 1 ) )
+				throw new IllegalArgumentException( "Significant digits must be -1 or greater than 0" );
+			if( flushInterval < 0 )
+				throw new IllegalArgumentException( "Flush interval must be 0 or greater" );
+			if( ( parallelThreshold != -1 ) && ( parallelThreshold < 1 ) )
+				throw new IllegalArgumentException( "Parallel threshold must be greater than 0" );
+
+			JsonImplementation implementation = this.implementation != null ? this.implementation : Json.getImplementation();
+			return new JsonMapper( this, implementation, encoders.toArray( new JsonEncoder[encoders.size()] ) );
+		}
+
+		// //////////////////////////////////////////////////////////////////////////
+		// Private
+
+		private JsonImplementation implementation;
+
+		private final List<JsonEncoder> encoders = new ArrayList<JsonEncoder>();
+
+		private boolean expand;
+
+		private boolean allowCode;
+
+		private boolean allowTransform;
+
+		private int decimalPlaces = -1;
+
+		private int significantDigits = -1;
+
+		private int flushInterval;
+
+		private boolean base64Bytes;
+
+		private ExecutorService executor;
+
+		private int parallelThreshold = -1;
+
+		private boolean base64Strings;
+
+		private Collection<String> rawKeys;
+	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	/**
+	 * Reused buffers larger than this are discarded after use.
+	 */
+	private static final int MAX_BUFFER_SIZE = 64 * 1024;
+
+	private final MapperImplementation implementation;
+
+	private final boolean expand;
+
+	private final boolean allowCode;
+
+	private final boolean allowTransform;
+
+	private final int decimalPlaces;
+
+	private final int significantDigits;
+
+	private final int flushInterval;
+
+	private final boolean base64Bytes;
+
+	private final ExecutorService executor;
+
+	private final int parallelThreshold;
+
+	private final boolean base64Strings;
+
+	private final Collection<String> rawKeys;
+
+	private final ThreadLocal<Buffer> buffers = new ThreadLocal<Buffer>()
+	{
+		@Override
+		protected Buffer initialValue()
+		{
+			return new Buffer();
+		}
+	};
+
+	private JsonMapper( Builder builder, JsonImplementation implementation, JsonEncoder[] encoders )
+	{
+		this.implementation = new MapperImplementation( implementation, encoders );
+		expand = builder.expand;
+		allowCode = builder.allowCode;
+		allowTransform = builder.allowTransform;
+		decimalPlaces = builder.decimalPlaces;
+		significantDigits = builder.significantDigits;
+		flushInterval = builder.flushInterval;
+		base64Bytes = builder.base64Bytes;
+		executor = builder.executor;
+		parallelThreshold = builder.parallelThreshold;
+		base64Strings = builder.base64Strings;
+		rawKeys = builder.rawKeys != null ? Collections.unmodifiableCollection( builder.rawKeys ) : null;
+	}
+
+	/**
+	 * Delegates to the underlying implementation, but uses the mapper's
+	 * encoder table and configures all contexts and decoders.
+	 */
+	private class MapperImplementation implements DenseArrayJsonImplementation, ThreadBoundJsonImplementation
+	{
+		public MapperImplementation( JsonImplementation implementation, JsonEncoder[] extraEncoders )
+		{
+			this.implementation = implementation;
+			this.extraEncoders = extraEncoders;
+			encoders = createEncoders();
+		}
+
+		public boolean isThreadBound()
+		{
+			return Tasks.isThreadBound( implementation );
+		}
+
+		public void initialize()
+		{
+		}
+
+		public String getName()
+		{
+			return implementation.getName();
+		}
+
+		public int getPriority()
+		{
+			return implementation.getPriority();
+		}
+
+		public JsonContext createContext( Appendable out, boolean expand, boolean allowCode, int depth )
+		{
+			JsonContext context = new JsonContext( this, out, expand, allowCode, depth );
+			if( decimalPlaces != -1 )
+				context.setDecimalPlaces( decimalPlaces );
+			if( significantDigits != -1 )
+				context.setSignificantDigits( significantDigits );
+			context.setFlushInterval( flushInterval );
+			context.setBase64Bytes( base64Bytes );
+			context.setExecutor( executor );
+			if( parallelThreshold != -1 )
+				context.setParallelThreshold( parallelThreshold );
+			return context;
+		}
+
+		public JsonDecoder createDecoder( Reader reader, boolean allowTransform )
+		{
+			JsonDecoder decoder = implementation.createDecoder( reader, allowTransform );
+			decoder.setBase64Strings( base64Strings );
+			decoder.setRawKeys( rawKeys );
+			return decoder;
+		}
+
+		public Collection<JsonEncoder> getEncoders()
+		{
+			Encoders encoders = this.encoders;
+			if( ( implementation instanceof BaseJsonImplementation ) && ( encoders.version != ( (BaseJsonImplementation) implementation ).getRegistryVersion() ) )
+				this.encoders = encoders = createEncoders();
+			return encoders.list;
+		}
+
+		public JsonEncoder getFallbackEncoder()
+		{
+			return implementation.getFallbackEncoder();
+		}
+
+		public Collection<JsonTransformer> getTransformers()
+		{
+			return implementation.getTransformers();
+		}
+
+		public Object createObject()
+		{
+			return implementation.createObject();
+		}
+
+		public void putInObject( Object object, String key, Object value )
+		{
+			implementation.putInObject( object, key, value );
+		}
+
+		public Object createArray( int length )
+		{
+			return implementation.createArray( length );
+		}
+
+		public Object createArray( Object[] elements )
+		{
+			if( implementation instanceof DenseArrayJsonImplementation )
+				return ( (DenseArrayJsonImplementation) implementation ).createArray( elements );
+			Object array = implementation.createArray( elements.length );
+			for( int i = 0, length = elements.length; i < length; i++ )
+				implementation.setInArray( array, i, elements[i] );
+			return array;
+		}
+
+		public void setInArray( Object object, int index, Object value )
+		{
+			implementation.setInArray( object, index, value );
+		}
+
+		public Object createString( String value )
+		{
+			return implementation.createString( value );
+		}
+
+		public Object createDouble( double value )
+		{
+			return implementation.createDouble( value );
+		}
+
+		public Object createInteger( int value )
+		{
+			return implementation.createInteger( value );
+		}
+
+		public Object createLong( long value )
+		{
+			return implementation.createLong( value );
+		}
+
+		private final JsonImplementation implementation;
+
+		private final JsonEncoder[] extraEncoders;
+
+		private volatile Encoders encoders;
+
+		private Encoders createEncoders()
+		{
+			// Read the version first, so that a concurrent change would at
+			// worst cause an unnecessary rebuild
+			int version = implementation instanceof BaseJsonImplementation ? ( (BaseJsonImplementation) implementation ).getRegistryVersion() : 0;
+			List<JsonEncoder> list = new ArrayList<JsonEncoder>( Arrays.asList( extraEncoders ) );
+			list.addAll( implementation.getEncoders() );
+			return new Encoders( Collections.unmodifiableList( list ), version );
+		}
+	}
+
+	/**
+	 * Immutable.
+	 */
+	private static class Encoders
+	{
+		public Encoders( List<JsonEncoder> list, int version )
+		{
+			this.list = list;
+			this.version = version;
+		}
+
+		public final List<JsonEncoder> list;
+
+		public final int version;
+	}
+
+	/**
+	 * A reusable per-thread buffer.
+	 */
+	private static class Buffer
+	{
+		public StringBuilder builder = new StringBuilder();
+
+		/**
+		 * True while a {@link JsonMapper#write(Object)} call is using the
+		 * builder.
+		 */
+		public boolean inUse;
+	}
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+
+package com.threecrickets.jvm.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.threecrickets.jvm.json.internal.ByteBufferSpliterator;
+import com.threecrickets.jvm.json.internal.ReaderSpliterator;
+
+/**
+ * Lazy {@link Stream} views of the elements of JSON arrays, using the
+ * implementation of {@link Json}.
+ * <p>
+ * Requires JVM 8. (Kept separate from {@link Json} so that it can be loaded
+ * on older JVMs.)
+ * 
+ * @author Tal Liron
+ */
+public class JsonStreams
+{
+	//
+	// Static operations
+	//
+
+	/**
+	 * A lazy stream of the elements of a JSON array, which are decoded one at
+	 * a time as the stream is consumed. The stream cannot be split for
+	 * parallel processing. Closing the stream closes the reader.
+	 * <p>
+	 * Syntax errors are thrown as {@link IllegalArgumentException} (caused by
+	 * a {@link JsonSyntaxError}), and read errors as
+	 * {@link UncheckedIOException}.
+	 * 
+	 * @param reader
+	 *        The reader
+	 * @param allowTransform
+	 *        Whether to allow transformations
+	 * @return A stream of implementation-specific values
+	 * @see Json#getImplementation()
+	 */
+	public static Stream<Object> stream( final Reader reader, boolean allowTransform )
+	{
+		return StreamSupport.stream( new ReaderSpliterator( Json.createDecoder( reader, allowTransform ) ), false ).onClose( new Runnable()
+		{
+			public void run()
+			{
+				try
+				{
+					reader.close();
+				}
+				catch( IOException x )
+				{
+					throw new UncheckedIOException( x );
+				}
+			}
+		} );
+	}
+
+	/**
+	 * A lazy stream of the elements of a JSON array in UTF-8, which are
+	 * decoded one at a time as the stream is consumed. The stream can be
+	 * split efficiently for parallel processing.
+	 * <p>
+	 * Syntax errors are thrown as {@link IllegalArgumentException}.
+	 * 
+	 * @param bytes
+	 *        The JSON text in UTF-8
+	 * @param allowTransform
+	 *        Whether to allow transformations
+	 * @return A stream of implementation-specific values
+	 * @see Json#getImplementation()
+	 */
+	public static Stream<Object> stream( byte[] bytes, boolean allowTransform )
+	{
+		return stream( ByteBuffer.wrap( bytes ), allowTransform );
+	}
+
+	/**
+	 * A lazy stream of the elements of a JSON array in UTF-8, which are
+	 * decoded one at a time as the stream is consumed. The stream can be
+	 * split efficiently for parallel processing. The buffer can be a
+	 * {@link java.nio.MappedByteBuffer}.
+	 * <p>
+	 * Syntax errors are thrown as {@link IllegalArgumentException}.
+	 * 
+	 * @param buffer
+	 *        The JSON text in UTF-8, from the buffer's position to its limit
+	 * @param allowTransform
+	 *        Whether to allow transformations
+	 * @return A stream of implementation-specific values
+	 * @see Json#getImplementation()
+	 */
+	public static Stream<Object> stream( ByteBuffer buffer, boolean allowTransform )
+	{
+		return StreamSupport.stream( new ByteBufferSpliterator( buffer, Json.getImplementation(), allowTransform ), false );
+	}
+}
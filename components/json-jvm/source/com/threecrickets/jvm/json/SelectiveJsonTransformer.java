@@ -0,0 +1,73 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+
+package com.threecrickets.jvm.json;
+
+import java.util.Collection;
+
+/**
+ * A transformer that declares which decoded values it reacts to, so that the
+ * {@link JsonDecoder} can skip it for all other values.
+ * <p>
+ * Plain {@link JsonTransformer} instances are tried on every decoded value.
+ * A selective transformer is tried only on the kinds of values it declares,
+ * and if it declares marker keys, only on objects containing at least one of
+ * them (for example, "$date" or "$oid" for MongoDB-style extended JSON). The
+ * decoder notes these keys as it builds objects, so documents without markers
+ * incur almost no transformation cost.
+ * <p>
+ * Declarations are read when the transformer is added, and must not change.
+ * Note that {@link #transform(Object, JsonImplementation)} can still be called
+ * directly with other values, so it should still check its argument.
+ * 
+ * @author Tal Liron
+ */
+public interface SelectiveJsonTransformer extends JsonTransformer
+{
+	//
+	// Static attributes
+	//
+
+	/**
+	 * Objects.
+	 */
+	public static final int OBJECTS = 1;
+
+	/**
+	 * Arrays.
+	 */
+	public static final int ARRAYS = 2;
+
+	/**
+	 * Strings, numbers, booleans and null.
+	 */
+	public static final int SCALARS = 4;
+
+	//
+	// Attributes
+	//
+
+	/**
+	 * The kinds of decoded values to transform.
+	 * 
+	 * @return A combination of {@link #OBJECTS}, {@link #ARRAYS} and
+	 *         {@link #SCALARS}, or 0 to never be tried by the decoder
+	 */
+	public int getKinds();
+
+	/**
+	 * For {@link #OBJECTS}, the keys at least one of which must be present in
+	 * the object.
+	 * 
+	 * @return The marker keys, or null to be tried on all objects
+	 */
+	public Collection<String> getMarkerKeys();
+}
@@ -0,0 +1,35 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+
+package com.threecrickets.jvm.json;
+
+/**
+ * An implementation that may only be used in certain threads, for example
+ * because it creates values via a scripting engine's context, which is bound
+ * to the current thread.
+ * <p>
+ * The parallel operations (those that use an executor, such as
+ * {@link Json#fromAll(java.util.List, boolean)} and
+ * {@link Json#createLinesReader(java.io.Reader, boolean)}) instead run in the
+ * calling thread for such implementations. They still work, but they are not
+ * parallel.
+ * 
+ * @author Tal Liron
+ */
+public interface ThreadBoundJsonImplementation extends JsonImplementation
+{
+	/**
+	 * Whether the implementation may only be used in the current thread.
+	 * 
+	 * @return True if thread-bound
+	 */
+	public boolean isThreadBound();
+}
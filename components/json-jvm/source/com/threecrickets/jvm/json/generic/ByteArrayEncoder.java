@@ -0,0 +1,83 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+package com.threecrickets.jvm.json.generic;
+
+import java.io.IOException;
+
+import com.threecrickets.jvm.json.JsonContext;
+import com.threecrickets.jvm.json.JsonEncoder;
+import com.threecrickets.jvm.json.internal.Base64;
+
+/**
+ * A JSON encoder for JVM <code>byte[]</code> arrays. By default encodes them
+ * as an array of numbers, or, if {@link JsonContext#isBase64Bytes()} is set,
+ * as a Base64 string.
+ * 
+ * @author Tal Liron
+ */
+public class ByteArrayEncoder implements JsonEncoder
+{
+	//
+	// JsonEncoder
+	//
+
+	public boolean canEncode( Object object, JsonContext context )
+	{
+		return object instanceof byte[];
+	}
+
+	public void encode( Object object, JsonContext context ) throws IOException
+	{
+		byte[] array = (byte[]) object;
+
+		if( context.isBase64Bytes() )
+		{
+			context.out.append( '\"' );
+
+			// Encode in chunks that are a multiple of 3 bytes, so that only the
+			// last chunk is padded
+			int length = array.length;
+			char[] chars = new char[Base64.encodedLength( Math.min( length, CHUNK ) )];
+			for( int offset = 0; offset < length; offset += CHUNK )
+				context.append( chars, 0, Base64.encode( array, offset, Math.min( CHUNK, length - offset ), chars, 0 ) );
+
+			context.out.append( '\"' );
+			return;
+		}
+
+		context.out.append( '[' );
+
+		int length = array.length;
+		if( length > 0 )
+		{
+			context.newline();
+
+			for( int i = 0; i < length; i++ )
+			{
+				context.indentNested();
+				context.number( array[i] );
+
+				if( i < length - 1 )
+					context.comma();
+			}
+
+			context.newline();
+			context.indent();
+		}
+
+		context.out.append( ']' );
+	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	private static final int CHUNK = 3 * 1024;
+}
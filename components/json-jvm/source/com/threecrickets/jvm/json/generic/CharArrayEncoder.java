@@ -0,0 +1,39 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+package com.threecrickets.jvm.json.generic;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+import com.threecrickets.jvm.json.JsonContext;
+import com.threecrickets.jvm.json.JsonEncoder;
+
+/**
+ * A JSON encoder for JVM <code>char[]</code> arrays. Encodes them as a string.
+ * 
+ * @author Tal Liron
+ */
+public class CharArrayEncoder implements JsonEncoder
+{
+	//
+	// JsonEncoder
+	//
+
+	public boolean canEncode( Object object, JsonContext context )
+	{
+		return object instanceof char[];
+	}
+
+	public void encode( Object object, JsonContext context ) throws IOException
+	{
+		context.quoted( CharBuffer.wrap( (char[]) object ) );
+	}
+}
@@ -17,6 +17,7 @@ import java.util.Iterator;
 
 import com.threecrickets.jvm.json.JsonContext;
 import com.threecrickets.jvm.json.JsonEncoder;
+import com.threecrickets.jvm.json.internal.ParallelEncoder;
 
 /**
  * A JSON encoder for {@link Collection} implementations.
@@ -45,16 +46,19 @@ public class CollectionEncoder implements JsonEncoder
 		{
 			context.newline();
 
-			for( Iterator<Object> i = collection.iterator(); i.hasNext(); )
-			{
-				Object value = i.next();
+			if( ParallelEncoder.isParallel( collection.size(), context ) )
+				ParallelEncoder.encodeEntries( collection.toArray(), false, context );
+			else
+				for( Iterator<Object> i = collection.iterator(); i.hasNext(); )
+				{
+					Object value = i.next();
 
-				context.indentNested();
-				context.nest().encode( value );
+					context.indentNested();
+					context.nest().encode( value );
 
-				if( i.hasNext() )
-					context.comma();
-			}
+					if( i.hasNext() )
+						context.comma();
+				}
 
 			context.newline();
 			context.indent();
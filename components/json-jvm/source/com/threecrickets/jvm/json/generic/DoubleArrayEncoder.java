@@ -0,0 +1,62 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+
+package com.threecrickets.jvm.json.generic;
+
+import java.io.IOException;
+
+import com.threecrickets.jvm.json.JsonContext;
+import com.threecrickets.jvm.json.JsonEncoder;
+
+/**
+ * A JSON encoder for JVM <code>double[]</code> arrays. Elements are written
+ * directly, without boxing.
+ * 
+ * @author Tal Liron
+ */
+public class DoubleArrayEncoder implements JsonEncoder
+{
+	//
+	// JsonEncoder
+	//
+
+	public boolean canEncode( Object object, JsonContext context )
+	{
+		return object instanceof double[];
+	}
+
+	public void encode( Object object, JsonContext context ) throws IOException
+	{
+		double[] array = (double[]) object;
+
+		context.out.append( '[' );
+
+		int length = array.length;
+		if( length > 0 )
+		{
+			context.newline();
+
+			for( int i = 0; i < length; i++ )
+			{
+				context.indentNested();
+				context.number( array[i] );
+
+				if( i < length - 1 )
+					context.comma();
+			}
+
+			context.newline();
+			context.indent();
+		}
+
+		context.out.append( ']' );
+	}
+}
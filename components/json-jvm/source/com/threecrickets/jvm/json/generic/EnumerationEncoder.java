@@ -0,0 +1,58 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+package com.threecrickets.jvm.json.generic;
+
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.Iterator;
+
+import com.threecrickets.jvm.json.JsonContext;
+import com.threecrickets.jvm.json.JsonEncoder;
+
+/**
+ * A JSON encoder for {@link Enumeration} implementations. Elements are
+ * consumed lazily, as in {@link IteratorEncoder}.
+ * 
+ * @author Tal Liron
+ */
+public class EnumerationEncoder implements JsonEncoder
+{
+	//
+	// JsonEncoder
+	//
+
+	public boolean canEncode( Object object, JsonContext context )
+	{
+		return object instanceof Enumeration;
+	}
+
+	public void encode( Object object, JsonContext context ) throws IOException
+	{
+		final Enumeration<?> enumeration = (Enumeration<?>) object;
+		IteratorEncoder.encodeElements( new Iterator<Object>()
+		{
+			public boolean hasNext()
+			{
+				return enumeration.hasMoreElements();
+			}
+
+			public Object next()
+			{
+				return enumeration.nextElement();
+			}
+
+			public void remove()
+			{
+				throw new UnsupportedOperationException();
+			}
+		}, context );
+	}
+}
@@ -12,12 +12,14 @@
 package com.threecrickets.jvm.json.generic;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import com.threecrickets.jvm.json.BaseJsonImplementation;
+import com.threecrickets.jvm.json.DenseArrayJsonImplementation;
 import com.threecrickets.jvm.json.JsonEncoder;
 
 /**
@@ -26,7 +28,7 @@ import com.threecrickets.jvm.json.JsonEncoder;
  * 
  * @author Tal Liron
  */
-public class GenericJsonImplementation extends BaseJsonImplementation
+public class GenericJsonImplementation extends BaseJsonImplementation implements DenseArrayJsonImplementation
 {
 	//
 	// Static operations
@@ -40,6 +42,29 @@ public class GenericJsonImplementation extends BaseJsonImplementation
 		encoders.add( new MapEncoder() );
 		encoders.add( new NullEncoder() );
 		encoders.add( new NumberEncoder() );
+		encoders.add( new PreEncodedStringEncoder() );
+		encoders.add( new RawJsonEncoder() );
+		encoders.add( new ObjectArrayEncoder() );
+		encoders.add( new BooleanArrayEncoder() );
+		encoders.add( new ByteArrayEncoder() );
+		encoders.add( new CharArrayEncoder() );
+		encoders.add( new ShortArrayEncoder() );
+		encoders.add( new IntArrayEncoder() );
+		encoders.add( new LongArrayEncoder() );
+		encoders.add( new FloatArrayEncoder() );
+		encoders.add( new DoubleArrayEncoder() );
+		// Make sure these are after CollectionEncoder
+		encoders.add( new IterableEncoder() );
+		encoders.add( new IteratorEncoder() );
+		encoders.add( new EnumerationEncoder() );
+		try
+		{
+			encoders.add( new StreamEncoder() );
+		}
+		catch( LinkageError x )
+		{
+			// Streams require JVM 8
+		}
 	}
 
 	//
@@ -72,6 +97,11 @@ public class GenericJsonImplementation extends BaseJsonImplementation
 		return new ArrayList<Object>( length );
 	}
 
+	public Object createArray( Object[] elements )
+	{
+		return new ArrayList<Object>( Arrays.asList( elements ) );
+	}
+
 	@SuppressWarnings("unchecked")
 	public void setInArray( Object object, int index, Object value )
 	{
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+package com.threecrickets.jvm.json.generic;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+
+import com.threecrickets.jvm.json.JsonContext;
+import com.threecrickets.jvm.json.JsonEncoder;
+
+/**
+ * A JSON encoder for {@link Iterable} implementations that are not
+ * {@link Collection} implementations (those are handled by
+ * {@link CollectionEncoder}). Elements are consumed lazily, as in
+ * {@link IteratorEncoder}.
+ * <p>
+ * JVM 7 paths ({@code java.nio.file.Path}) are not encoded, because they
+ * iterate over paths, and a single-segment path iterates over itself. For
+ * the same reason, an element equal to the iterable itself is encoded as
+ * null rather than recursively.
+ * 
+ * @author Tal Liron
+ */
+public class IterableEncoder implements JsonEncoder
+{
+	//
+	// JsonEncoder
+	//
+
+	public boolean canEncode( Object object, JsonContext context )
+	{
+		return ( object instanceof Iterable ) && ( ( PATH == null ) || !PATH.isInstance( object ) );
+	}
+
+	public void encode( Object object, JsonContext context ) throws IOException
+	{
+		IteratorEncoder.encodeElements( new NotSelf( object ), context );
+	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	private static final Class<?> PATH;
+
+	static
+	{
+		Class<?> path;
+		try
+		{
+			path = Class.forName( "java.nio.file.Path" );
+		}
+		catch( ClassNotFoundException x )
+		{
+			// Before JVM 7
+			path = null;
+		}
+		PATH = path;
+	}
+
+	/**
+	 * Replaces elements equal to the iterable with null.
+	 */
+	private static class NotSelf implements Iterator<Object>
+	{
+		public NotSelf( Object iterable )
+		{
+			this.iterable = iterable;
+			iterator = ( (Iterable<?>) iterable ).iterator();
+		}
+
+		public boolean hasNext()
+		{
+			return iterator.hasNext();
+		}
+
+		public Object next()
+		{
+			Object next = iterator.next();
+			if( ( next == iterable ) || ( ( next != null ) && ( next.getClass() == iterable.getClass() ) && next.equals( iterable ) ) )
+				return null;
+			return next;
+		}
+
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		private final Object iterable;
+
+		private final Iterator<?> iterator;
+	}
+}
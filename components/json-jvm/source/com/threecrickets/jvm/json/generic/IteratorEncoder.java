@@ -0,0 +1,92 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+package com.threecrickets.jvm.json.generic;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+import com.threecrickets.jvm.json.JsonContext;
+import com.threecrickets.jvm.json.JsonEncoder;
+
+/**
+ * A JSON encoder for {@link Iterator} implementations. Elements are consumed
+ * lazily, one at a time, so that arbitrarily long sequences can be encoded
+ * with constant memory. The output can be flushed periodically, see
+ * {@link JsonContext#setFlushInterval(int)}.
+ * <p>
+ * Note that the iterator is exhausted by encoding.
+ * 
+ * @author Tal Liron
+ */
+public class IteratorEncoder implements JsonEncoder
+{
+	//
+	// Static operations
+	//
+
+	/**
+	 * Encodes the remaining elements of an iterator as a JSON array.
+	 * 
+	 * @param iterator
+	 *        The iterator
+	 * @param context
+	 *        The context
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public static void encodeElements( Iterator<?> iterator, JsonContext context ) throws IOException
+	{
+		context.out.append( '[' );
+
+		if( iterator.hasNext() )
+		{
+			context.newline();
+
+			int flushInterval = context.getFlushInterval();
+			int count = 0;
+			for( ;; )
+			{
+				Object value = iterator.next();
+
+				context.indentNested();
+				context.nest().encode( value );
+
+				// Flush before hasNext(), which might block
+				if( ( flushInterval > 0 ) && ( ++count % flushInterval == 0 ) )
+					context.flush();
+
+				if( !iterator.hasNext() )
+					break;
+
+				context.comma();
+			}
+
+			context.newline();
+			context.indent();
+		}
+
+		context.out.append( ']' );
+	}
+
+	//
+	// JsonEncoder
+	//
+
+	public boolean canEncode( Object object, JsonContext context )
+	{
+		return object instanceof Iterator;
+	}
+
+	public void encode( Object object, JsonContext context ) throws IOException
+	{
+		encodeElements( (Iterator<?>) object, context );
+	}
+}
@@ -17,6 +17,7 @@ import java.util.Map;
 
 import com.threecrickets.jvm.json.JsonContext;
 import com.threecrickets.jvm.json.JsonEncoder;
+import com.threecrickets.jvm.json.internal.ParallelEncoder;
 
 /**
  * A JSON encoder for {@link Map} implementations.
@@ -36,8 +37,7 @@ public class MapEncoder implements JsonEncoder
 
 	public void encode( Object object, JsonContext context ) throws IOException
 	{
-		@SuppressWarnings("unchecked")
-		Map<String, Object> map = (Map<String, Object>) object;
+		Map<?, ?> map = (Map<?, ?>) object;
 
 		context.out.append( '{' );
 
@@ -45,18 +45,21 @@ public class MapEncoder implements JsonEncoder
 		{
 			context.newline();
 
-			for( Iterator<Map.Entry<String, Object>> i = map.entrySet().iterator(); i.hasNext(); )
-			{
-				Map.Entry<String, Object> entry = i.next();
+			if( ParallelEncoder.isParallel( map.size(), context ) )
+				ParallelEncoder.encodeEntries( map.entrySet().toArray(), true, context );
+			else
+				for( Iterator<? extends Map.Entry<?, ?>> i = map.entrySet().iterator(); i.hasNext(); )
+				{
+					Map.Entry<?, ?> entry = i.next();
 
-				context.indentNested();
-				context.quoted( entry.getKey() );
-				context.colon();
-				context.nest().encode( entry.getValue() );
+					context.indentNested();
+					context.quotedKey( String.valueOf( entry.getKey() ) );
+					context.colon();
+					context.nest().encode( entry.getValue() );
 
-				if( i.hasNext() )
-					context.comma();
-			}
+					if( i.hasNext() )
+						context.comma();
+				}
 
 			context.newline();
 			context.indent();
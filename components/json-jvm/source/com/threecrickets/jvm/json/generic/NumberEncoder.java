@@ -15,7 +15,6 @@ import java.io.IOException;
 
 import com.threecrickets.jvm.json.JsonContext;
 import com.threecrickets.jvm.json.JsonEncoder;
-import com.threecrickets.jvm.json.util.JsonUtil;
 
 /**
  * A JSON encoder for JVM {@link Number} primitives.
@@ -35,6 +34,6 @@ public class NumberEncoder implements JsonEncoder
 
 	public void encode( Object object, JsonContext context ) throws IOException
 	{
-		context.out.append( JsonUtil.numberToString( (Number) object ) );
+		context.number( (Number) object );
 	}
 }
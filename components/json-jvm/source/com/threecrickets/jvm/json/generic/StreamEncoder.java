@@ -0,0 +1,50 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+package com.threecrickets.jvm.json.generic;
+
+import java.io.IOException;
+import java.util.stream.BaseStream;
+
+import com.threecrickets.jvm.json.JsonContext;
+import com.threecrickets.jvm.json.JsonEncoder;
+
+/**
+ * A JSON encoder for JVM 8 streams ({@link BaseStream} implementations,
+ * including the primitive streams). Elements are consumed lazily, as in
+ * {@link IteratorEncoder}, and the stream is closed when done, even if
+ * encoding fails.
+ * 
+ * @author Tal Liron
+ */
+public class StreamEncoder implements JsonEncoder
+{
+	//
+	// JsonEncoder
+	//
+
+	public boolean canEncode( Object object, JsonContext context )
+	{
+		return object instanceof BaseStream;
+	}
+
+	public void encode( Object object, JsonContext context ) throws IOException
+	{
+		BaseStream<?, ?> stream = (BaseStream<?, ?>) object;
+		try
+		{
+			IteratorEncoder.encodeElements( stream.iterator(), context );
+		}
+		finally
+		{
+			stream.close();
+		}
+	}
+}
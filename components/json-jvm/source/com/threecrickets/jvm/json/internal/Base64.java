@@ -0,0 +1,169 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+package com.threecrickets.jvm.json.internal;
+
+/**
+ * Standard Base64 (RFC 4648, with padding) encoding directly into char
+ * buffers, and decoding.
+ * 
+ * @author Tal Liron
+ */
+public class Base64
+{
+	//
+	// Static operations
+	//
+
+	/**
+	 * The number of chars needed to encode a number of bytes.
+	 * 
+	 * @param length
+	 *        The number of bytes
+	 * @return The number of chars
+	 */
+	public static int encodedLength( int length )
+	{
+		return ( ( length + 2 ) / 3 ) * 4;
+	}
+
+	/**
+	 * Encodes bytes. If the length is not a multiple of 3 the encoded chars
+	 * will be padded, so when encoding in chunks all but the last chunk should
+	 * be a multiple of 3.
+	 * 
+	 * @param bytes
+	 *        The bytes
+	 * @param offset
+	 *        The offset in the bytes
+	 * @param length
+	 *        The number of bytes to encode
+	 * @param chars
+	 *        The chars (must have room for {@link #encodedLength(int)} chars)
+	 * @param charsOffset
+	 *        Where to start writing in the chars
+	 * @return The offset after the last char written
+	 */
+	public static int encode( byte[] bytes, int offset, int length, char[] chars, int charsOffset )
+	{
+		int end = offset + length;
+		int whole = offset + ( length / 3 ) * 3;
+		int i = offset;
+		int c = charsOffset;
+		while( i < whole )
+		{
+			int bits = ( bytes[i++] & 0xff ) << 16 | ( bytes[i++] & 0xff ) << 8 | ( bytes[i++] & 0xff );
+			chars[c++] = ALPHABET[( bits >>> 18 ) & 0x3f];
+			chars[c++] = ALPHABET[( bits >>> 12 ) & 0x3f];
+			chars[c++] = ALPHABET[( bits >>> 6 ) & 0x3f];
+			chars[c++] = ALPHABET[bits & 0x3f];
+		}
+
+		int remaining = end - i;
+		if( remaining > 0 )
+		{
+			int bits = ( bytes[i++] & 0xff ) << 16;
+			if( remaining == 2 )
+				bits |= ( bytes[i] & 0xff ) << 8;
+			chars[c++] = ALPHABET[( bits >>> 18 ) & 0x3f];
+			chars[c++] = ALPHABET[( bits >>> 12 ) & 0x3f];
+			chars[c++] = remaining == 2 ? ALPHABET[( bits >>> 6 ) & 0x3f] : '=';
+			chars[c++] = '=';
+		}
+
+		return c;
+	}
+
+	/**
+	 * Whether the text is valid padded Base64.
+	 * 
+	 * @param text
+	 *        The text
+	 * @return True if valid
+	 */
+	public static boolean isBase64( CharSequence text )
+	{
+		int length = text.length();
+		if( ( length == 0 ) || ( length % 4 != 0 ) )
+			return false;
+
+		int padding = 0;
+		if( text.charAt( length - 1 ) == '=' )
+		{
+			padding++;
+			if( text.charAt( length - 2 ) == '=' )
+				padding++;
+		}
+
+		for( int i = length - padding - 1; i >= 0; i-- )
+		{
+			char c = text.charAt( i );
+			if( ( c >= 128 ) || ( VALUES[c] < 0 ) )
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Decodes valid padded Base64.
+	 * 
+	 * @param text
+	 *        The text
+	 * @return The bytes
+	 * @throws IllegalArgumentException
+	 *         If the text is not valid Base64
+	 * @see #isBase64(CharSequence)
+	 */
+	public static byte[] decode( CharSequence text )
+	{
+		if( !isBase64( text ) )
+			throw new IllegalArgumentException( "Not Base64" );
+
+		int length = text.length();
+		int padding = text.charAt( length - 1 ) == '=' ? ( text.charAt( length - 2 ) == '=' ? 2 : 1 ) : 0;
+		byte[] bytes = new byte[( length / 4 ) * 3 - padding];
+
+		int b = 0;
+		for( int i = 0; i < length; i += 4 )
+		{
+			int bits = VALUES[text.charAt( i )] << 18 | VALUES[text.charAt( i + 1 )] << 12;
+			char c2 = text.charAt( i + 2 );
+			char c3 = text.charAt( i + 3 );
+			if( c2 != '=' )
+				bits |= VALUES[c2] << 6;
+			if( c3 != '=' )
+				bits |= VALUES[c3];
+
+			bytes[b++] = (byte) ( bits >>> 16 );
+			if( b < bytes.length )
+				bytes[b++] = (byte) ( bits >>> 8 );
+			if( b < bytes.length )
+				bytes[b++] = (byte) bits;
+		}
+
+		return bytes;
+	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+	private static final int[] VALUES = new int[128];
+
+	static
+	{
+		for( int i = 0; i < VALUES.length; i++ )
+			VALUES[i] = -1;
+		for( int i = 0; i < ALPHABET.length; i++ )
+			VALUES[ALPHABET[i]] = i;
+	}
+}
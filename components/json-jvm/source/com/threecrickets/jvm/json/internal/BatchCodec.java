@@ -0,0 +1,251 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+
+package com.threecrickets.jvm.json.internal;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.threecrickets.jvm.json.JsonContext;
+import com.threecrickets.jvm.json.JsonImplementation;
+import com.threecrickets.jvm.json.JsonSyntaxError;
+
+/**
+ * Encodes and decodes batches of independent documents in parallel.
+ * <p>
+ * The batch is split into chunks, one task per chunk. Each task reuses a
+ * single buffer and context for all the documents in its chunk, so setup costs
+ * are paid per chunk rather than per document. Results are kept in the order
+ * of the batch.
+ * 
+ * @author Tal Liron
+ */
+public class BatchCodec
+{
+	//
+	// Static operations
+	//
+
+	/**
+	 * Encodes all the objects.
+	 * 
+	 * @param objects
+	 *        The objects to encode
+	 * @param implementation
+	 *        The implementation
+	 * @param expand
+	 *        Whether to expand the JSON with newlines, indents, and spaces
+	 * @param executor
+	 *        The executor, or null to encode in the current thread (always
+	 *        the case for thread-bound implementations)
+	 * @return The implementation-specific strings, in order
+	 * @throws RuntimeException
+	 *         If interrupted while waiting for the tasks (the thread's
+	 *         interrupt flag is kept set), wrapping an
+	 *         {@link java.io.InterruptedIOException}
+	 */
+	public static List<Object> encode( List<?> objects, JsonImplementation implementation, boolean expand, ExecutorService executor )
+	{
+		Object[] results = new Object[objects.size()];
+		try
+		{
+			run( new EncodeChunk( objects, results, implementation, expand ), objects.size(), executor, IOException.class );
+		}
+		catch( IOException x )
+		{
+			// Encoding into a StringBuilder cannot fail, so we must have been
+			// interrupted
+			throw interrupted( x );
+		}
+		return Arrays.asList( results );
+	}
+
+	/**
+	 * Decodes all the texts.
+	 * 
+	 * @param texts
+	 *        The JSON texts
+	 * @param implementation
+	 *        The implementation
+	 * @param allowTransform
+	 *        Whether to allow transformations
+	 * @param executor
+	 *        The executor, or null to decode in the current thread (always
+	 *        the case for thread-bound implementations)
+	 * @return The implementation-specific objects or arrays, in order
+	 * @throws JsonSyntaxError
+	 *         In case of a JSON syntax error in any of the texts (the message
+	 *         will include the index of the text)
+	 * @throws RuntimeException
+	 *         If interrupted while waiting for the tasks (the thread's
+	 *         interrupt flag is kept set), wrapping an
+	 *         {@link java.io.InterruptedIOException}
+	 */
+	public static List<Object> decode( List<? extends CharSequence> texts, JsonImplementation implementation, boolean allowTransform, ExecutorService executor ) throws JsonSyntaxError
+	{
+		Object[] results = new Object[texts.size()];
+		try
+		{
+			run( new DecodeChunk( texts, results, implementation, allowTransform ), texts.size(), executor, JsonSyntaxError.class );
+		}
+		catch( IOException x )
+		{
+			// Reading from a StringReader cannot fail, so we must have been
+			// interrupted
+			throw interrupted( x );
+		}
+		return Arrays.asList( results );
+	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	private static final int MIN_CHUNK_SIZE = 16;
+
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private static RuntimeException interrupted( IOException x )
+	{
+		Thread.currentThread().interrupt();
+		return new RuntimeException( x );
+	}
+
+	private static <E extends Exception> void run( Chunk chunk, int size, ExecutorService executor, Class<E> exceptionClass ) throws E, IOException
+	{
+		if( size == 0 )
+			return;
+
+		if( ( executor == null ) || Tasks.isThreadBound( chunk.implementation ) )
+		{
+			try
+			{
+				chunk.run( 0, size );
+			}
+			catch( Exception x )
+			{
+				if( exceptionClass.isInstance( x ) )
+					throw exceptionClass.cast( x );
+				else if( x instanceof IOException )
+					throw (IOException) x;
+				throw (RuntimeException) x;
+			}
+			return;
+		}
+
+		int tasks = Runtime.getRuntime().availableProcessors() * CHUNKS_PER_THREAD;
+		int chunkSize = Math.max( MIN_CHUNK_SIZE, ( size + tasks - 1 ) / tasks );
+		List<Future<Object>> futures = new ArrayList<Future<Object>>();
+		try
+		{
+			for( int start = 0; start < size; start += chunkSize )
+				futures.add( executor.submit( chunk.task( start, Math.min( start + chunkSize, size ) ) ) );
+			for( Future<Object> future : futures )
+				Tasks.get( future, exceptionClass );
+		}
+		finally
+		{
+			Tasks.cancel( futures );
+		}
+	}
+
+	private static abstract class Chunk
+	{
+		public Chunk( JsonImplementation implementation )
+		{
+			this.implementation = implementation;
+		}
+
+		public final JsonImplementation implementation;
+
+		public abstract void run( int start, int end ) throws Exception;
+
+		public Callable<Object> task( final int start, final int end )
+		{
+			return new Callable<Object>()
+			{
+				public Object call() throws Exception
+				{
+					run( start, end );
+					return null;
+				}
+			};
+		}
+	}
+
+	private static class EncodeChunk extends Chunk
+	{
+		public EncodeChunk( List<?> objects, Object[] results, JsonImplementation implementation, boolean expand )
+		{
+			super( implementation );
+			this.objects = objects;
+			this.results = results;
+			this.expand = expand;
+		}
+
+		@Override
+		public void run( int start, int end ) throws IOException
+		{
+			StringBuilder out = new StringBuilder();
+			JsonContext context = implementation.createContext( out, expand, false, 0 );
+			for( int i = start; i < end; i++ )
+			{
+				out.setLength( 0 );
+				context.encode( objects.get( i ) );
+				results[i] = implementation.createString( out.toString() );
+			}
+		}
+
+		private final List<?> objects;
+
+		private final Object[] results;
+
+		private final boolean expand;
+	}
+
+	private static class DecodeChunk extends Chunk
+	{
+		public DecodeChunk( List<? extends CharSequence> texts, Object[] results, JsonImplementation implementation, boolean allowTransform )
+		{
+			super( implementation );
+			this.texts = texts;
+			this.results = results;
+			this.allowTransform = allowTransform;
+		}
+
+		@Override
+		public void run( int start, int end ) throws JsonSyntaxError, IOException
+		{
+			for( int i = start; i < end; i++ )
+			{
+				try
+				{
+					results[i] = implementation.createDecoder( new StringReader( texts.get( i ).toString() ), allowTransform ).decode();
+				}
+				catch( JsonSyntaxError x )
+				{
+					throw new JsonSyntaxError( "Text " + i + ": " + x.getMessage(), x.getLine(), x.getColumn() );
+				}
+			}
+		}
+
+		private final List<? extends CharSequence> texts;
+
+		private final Object[] results;
+
+		private final boolean allowTransform;
+	}
+}
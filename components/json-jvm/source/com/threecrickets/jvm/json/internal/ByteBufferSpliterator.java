@@ -0,0 +1,369 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+
+package com.threecrickets.jvm.json.internal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import com.threecrickets.jvm.json.JsonImplementation;
+import com.threecrickets.jvm.json.JsonSyntaxError;
+
+/**
+ * A spliterator over the elements of a JSON array in UTF-8 bytes, decoding one
+ * element at a time. Works for any {@link ByteBuffer}, including a
+ * {@link java.nio.MappedByteBuffer}.
+ * <p>
+ * The first split scans the whole array once for the commas between top-level
+ * elements, and records about one comma per 4 KB in an index that is shared
+ * by all the spliterators split from it. Further splits only need a binary
+ * search in the index. The scan only tracks quotes, escapes and bracket
+ * depth, which is much cheaper than decoding. Because all structural chars in
+ * JSON are ASCII, they can never be confused with the bytes of multi-byte
+ * UTF-8 chars.
+ * <p>
+ * The size is estimated in elements, using the average element size found by
+ * the scan. Before the first split, the average element size is sampled from
+ * the first 64 KB.
+ * <p>
+ * Requires JVM 8.
+ * 
+ * @author Tal Liron
+ */
+public class ByteBufferSpliterator implements Spliterator<Object>
+{
+	//
+	// Construction
+	//
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param buffer
+	 *        The buffer, from its position to its limit
+	 * @param implementation
+	 *        The implementation
+	 * @param allowTransform
+	 *        Whether to allow transformations
+	 */
+	public ByteBufferSpliterator( ByteBuffer buffer, JsonImplementation implementation, boolean allowTransform )
+	{
+		this( buffer, buffer.position(), buffer.limit(), false, new Separators(), implementation, allowTransform );
+	}
+
+	//
+	// Spliterator
+	//
+
+	public boolean tryAdvance( Consumer<? super Object> action )
+	{
+		if( !start() )
+			return false;
+
+		int elementStart = skipWhitespace( position );
+		if( ( elementStart == end ) || isClose( buffer.get( elementStart ) ) )
+		{
+			position = end;
+			return false;
+		}
+
+		int elementEnd = skipElement( elementStart );
+		position = ( ( elementEnd < end ) && ( buffer.get( elementEnd ) == ',' ) ) ? elementEnd + 1 : elementEnd;
+		if( elementEnd == elementStart )
+			throw error( "Missing value", elementStart );
+
+		action.accept( decode( elementStart, elementEnd ) );
+		return true;
+	}
+
+	public Spliterator<Object> trySplit()
+	{
+		// Thread-bound implementations cannot decode in other threads
+		if( Tasks.isThreadBound( implementation ) || !start() || ( end - position < MIN_SPLIT_SIZE ) )
+			return null;
+
+		int[] offsets = separators.get( this );
+		int middle = position + ( end - position ) / 2;
+		int index = Arrays.binarySearch( offsets, 0, separators.count, middle );
+		if( index < 0 )
+			index = -index - 1;
+		if( ( index == separators.count ) || ( offsets[index] >= end ) )
+			return null;
+
+		int split = offsets[index];
+		ByteBufferSpliterator prefix = new ByteBufferSpliterator( buffer, position, split, true, separators, implementation, allowTransform );
+		position = split;
+		return prefix;
+	}
+
+	public long estimateSize()
+	{
+		int elementSize = separators.elementSize;
+		if( elementSize == 0 )
+			separators.elementSize = elementSize = sampleElementSize();
+		return Math.max( ( end - position ) / elementSize, 1 );
+	}
+
+	public int characteristics()
+	{
+		return ORDERED;
+	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	private static final int MIN_SPLIT_SIZE = 16 * 1024;
+
+	private static final int SEPARATOR_INTERVAL = 4 * 1024;
+
+	private static final int SAMPLE_SIZE = 64 * 1024;
+
+	private static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+	private final ByteBuffer buffer;
+
+	private final int end;
+
+	private final Separators separators;
+
+	private final JsonImplementation implementation;
+
+	private final boolean allowTransform;
+
+	private int position;
+
+	private boolean started;
+
+	private ByteBufferSpliterator( ByteBuffer buffer, int position, int end, boolean started, Separators separators, JsonImplementation implementation, boolean allowTransform )
+	{
+		this.buffer = buffer;
+		this.position = position;
+		this.end = end;
+		this.started = started;
+		this.separators = separators;
+		this.implementation = implementation;
+		this.allowTransform = allowTransform;
+	}
+
+	/**
+	 * Consumes the opening bracket, if we have not done so yet.
+	 * 
+	 * @return False if there are no more elements
+	 */
+	private boolean start()
+	{
+		if( !started )
+		{
+			position = skipWhitespace( position );
+			if( ( position == end ) || !isOpen( buffer.get( position ) ) || ( buffer.get( position ) == '{' ) )
+				throw error( "A JSON array text must start with '['", position );
+			position++;
+			started = true;
+		}
+		return position < end;
+	}
+
+	/**
+	 * The average size of the elements at the start of the remaining bytes.
+	 */
+	private int sampleElementSize()
+	{
+		int sampleEnd = (int) Math.min( end, (long) position + SAMPLE_SIZE );
+		int elements = 1;
+		// The opening bracket has not been consumed yet
+		int depth = started ? 0 : -1;
+		byte quote = 0;
+		for( int i = position; i < sampleEnd; i++ )
+		{
+			byte b = buffer.get( i );
+			if( quote != 0 )
+			{
+				if( b == '\\' )
+					i++;
+				else if( b == quote )
+					quote = 0;
+			}
+			else if( ( b == '"' ) || ( b == '\'' ) )
+				quote = b;
+			else if( isOpen( b ) )
+				depth++;
+			else if( isClose( b ) )
+			{
+				if( depth-- == 0 )
+					break;
+			}
+			else if( ( b == ',' ) && ( depth == 0 ) )
+				elements++;
+		}
+		return Math.max( ( sampleEnd - position ) / elements, 1 );
+	}
+
+	private int skipWhitespace( int i )
+	{
+		while( ( i < end ) && ( ( buffer.get( i ) & 0xff ) <= ' ' ) )
+			i++;
+		return i;
+	}
+
+	/**
+	 * The index of the comma or closing bracket after the element, or the end.
+	 */
+	private int skipElement( int i )
+	{
+		int depth = 0;
+		byte quote = 0;
+		for( ; i < end; i++ )
+		{
+			byte b = buffer.get( i );
+			if( quote != 0 )
+			{
+				if( b == '\\' )
+					i++;
+				else if( b == quote )
+					quote = 0;
+			}
+			else if( ( b == '"' ) || ( b == '\'' ) )
+				quote = b;
+			else if( isOpen( b ) )
+				depth++;
+			else if( isClose( b ) )
+			{
+				if( depth-- == 0 )
+					return i;
+			}
+			else if( ( b == ',' ) && ( depth == 0 ) )
+				return i;
+		}
+		return end;
+	}
+
+	private Object decode( int start, int end )
+	{
+		ByteBuffer element = buffer.duplicate();
+		element.limit( end ).position( start );
+		try
+		{
+			return implementation.createDecoder( new CharSequenceReader( UTF8.decode( element ) ), allowTransform ).decodeValue();
+		}
+		catch( JsonSyntaxError x )
+		{
+			IllegalArgumentException error = error( x.getMessage(), start );
+			error.initCause( x );
+			throw error;
+		}
+		catch( IOException x )
+		{
+			throw new UncheckedIOException( x );
+		}
+	}
+
+	private IllegalArgumentException error( String message, int index )
+	{
+		int line = 1;
+		for( int i = 0; i < index; i++ )
+			if( buffer.get( i ) == '\n' )
+				line++;
+		return new IllegalArgumentException( message + " (line " + line + ")" );
+	}
+
+	/**
+	 * The offsets after top-level commas, shared by all spliterators split
+	 * from the same root. Built by the first split, which is necessarily at
+	 * or before the start of every later spliterator.
+	 */
+	private static class Separators
+	{
+		public int[] get( ByteBufferSpliterator spliterator )
+		{
+			int[] offsets = this.offsets;
+			if( offsets == null )
+			{
+				synchronized( this )
+				{
+					offsets = this.offsets;
+					if( offsets == null )
+						this.offsets = offsets = scan( spliterator );
+				}
+			}
+			return offsets;
+		}
+
+		public volatile int count;
+
+		public volatile int elementSize;
+
+		private volatile int[] offsets;
+
+		private int[] scan( ByteBufferSpliterator spliterator )
+		{
+			ByteBuffer buffer = spliterator.buffer;
+			int start = spliterator.position, end = spliterator.end;
+			int[] offsets = new int[Math.max( ( end - start ) / SEPARATOR_INTERVAL, 1 ) + 1];
+			int count = 0;
+			int elements = 1;
+			int next = start + SEPARATOR_INTERVAL;
+			int depth = 0;
+			byte quote = 0;
+			for( int i = start; i < end; i++ )
+			{
+				byte b = buffer.get( i );
+				if( quote != 0 )
+				{
+					if( b == '\\' )
+						i++;
+					else if( b == quote )
+						quote = 0;
+				}
+				else if( ( b == '"' ) || ( b == '\'' ) )
+					quote = b;
+				else if( isOpen( b ) )
+					depth++;
+				else if( isClose( b ) )
+				{
+					if( depth-- == 0 )
+					{
+						end = i;
+						break;
+					}
+				}
+				else if( ( b == ',' ) && ( depth == 0 ) )
+				{
+					elements++;
+					if( i >= next )
+					{
+						if( count == offsets.length )
+							offsets = Arrays.copyOf( offsets, count * 2 );
+						offsets[count++] = i + 1;
+						next = i + SEPARATOR_INTERVAL;
+					}
+				}
+			}
+			this.count = count;
+			elementSize = Math.max( ( end - start ) / elements, 1 );
+			return offsets;
+		}
+	}
+
+	private static boolean isOpen( byte b )
+	{
+		return ( b == '[' ) || ( b == '{' ) || ( b == '(' );
+	}
+
+	private static boolean isClose( byte b )
+	{
+		return ( b == ']' ) || ( b == '}' ) || ( b == ')' );
+	}
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+
+package com.threecrickets.jvm.json.internal;
+
+import java.io.Reader;
+
+/**
+ * A reader over a range of a {@link CharSequence}, without copying it. Supports
+ * marking, so that it does not need to be buffered.
+ * 
+ * @author Tal Liron
+ */
+public class CharSequenceReader extends Reader
+{
+	//
+	// Construction
+	//
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param text
+	 *        The text
+	 * @param start
+	 *        The start index
+	 * @param end
+	 *        The end index (exclusive)
+	 */
+	public CharSequenceReader( CharSequence text, int start, int end )
+	{
+		this.text = text;
+		position = start;
+		mark = start;
+		this.end = end;
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param text
+	 *        The text
+	 */
+	public CharSequenceReader( CharSequence text )
+	{
+		this( text, 0, text.length() );
+	}
+
+	//
+	// Reader
+	//
+
+	@Override
+	public int read()
+	{
+		return position < end ? text.charAt( position++ ) : -1;
+	}
+
+	@Override
+	public int read( char[] buffer, int offset, int length )
+	{
+		if( position >= end )
+			return -1;
+		length = Math.min( length, end - position );
+		if( text instanceof String )
+			( (String) text ).getChars( position, position + length, buffer, offset );
+		else
+			for( int i = 0; i < length; i++ )
+				buffer[offset + i] = text.charAt( position + i );
+		position += length;
+		return length;
+	}
+
+	@Override
+	public long skip( long n )
+	{
+		int skipped = (int) Math.min( Math.max( n, 0 ), end - position );
+		position += skipped;
+		return skipped;
+	}
+
+	@Override
+	public boolean ready()
+	{
+		return true;
+	}
+
+	@Override
+	public boolean markSupported()
+	{
+		return true;
+	}
+
+	@Override
+	public void mark( int readAheadLimit )
+	{
+		mark = position;
+	}
+
+	@Override
+	public void reset()
+	{
+		position = mark;
+	}
+
+	@Override
+	public void close()
+	{
+	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	private final CharSequence text;
+
+	private final int end;
+
+	private int position;
+
+	private int mark;
+}
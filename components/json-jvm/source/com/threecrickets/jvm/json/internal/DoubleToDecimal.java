@@ -0,0 +1,538 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+
+package com.threecrickets.jvm.json.internal;
+
+import java.math.BigInteger;
+
+/**
+ * Writes doubles and floats as the shortest decimal that rounds back to the
+ * same value, directly into a char buffer. The output uses the JavaScript
+ * number format (fixed notation for decimal exponents from -5 to 21,
+ * exponential notation otherwise).
+ * <p>
+ * Uses Raffaello Giulietti's Schubfach algorithm, which, unlike Grisu, always
+ * succeeds and never needs to fall back to big number arithmetic.
+ * 
+ * @author Tal Liron
+ */
+public class DoubleToDecimal
+{
+	//
+	// Static attributes
+	//
+
+	/**
+	 * The maximum number of chars written, including the sign.
+	 */
+	public static final int MAX_LENGTH = 26;
+
+	/**
+	 * Mode: the shortest digits that round back to the value.
+	 */
+	public static final int SHORTEST = 0;
+
+	/**
+	 * Mode: the shortest digits rounded (half up) to at most a number of
+	 * digits after the decimal point.
+	 */
+	public static final int DECIMAL_PLACES = 1;
+
+	/**
+	 * Mode: the shortest digits rounded (half up) to at most a number of
+	 * significant digits.
+	 */
+	public static final int SIGNIFICANT_DIGITS = 2;
+
+	//
+	// Static operations
+	//
+
+	/**
+	 * Writes the shortest decimal representation of the double.
+	 * 
+	 * @param value
+	 *        The double
+	 * @param buffer
+	 *        The buffer (must have at least {@link #MAX_LENGTH} chars available
+	 *        from the offset)
+	 * @param offset
+	 *        Where to start writing in the buffer
+	 * @return The offset after the last char written
+	 */
+	public static int toChars( double value, char[] buffer, int offset )
+	{
+		return toChars( value, SHORTEST, 0, buffer, offset );
+	}
+
+	/**
+	 * Writes the decimal representation of the double.
+	 * 
+	 * @param value
+	 *        The double
+	 * @param mode
+	 *        {@link #SHORTEST}, {@link #DECIMAL_PLACES} or
+	 *        {@link #SIGNIFICANT_DIGITS}
+	 * @param digits
+	 *        The number of digits for the mode (ignored for
+	 *        {@link #SHORTEST})
+	 * @param buffer
+	 *        The buffer (must have at least {@link #MAX_LENGTH} chars available
+	 *        from the offset)
+	 * @param offset
+	 *        Where to start writing in the buffer
+	 * @return The offset after the last char written
+	 */
+	public static int toChars( double value, int mode, int digits, char[] buffer, int offset )
+	{
+		long bits = Double.doubleToRawLongBits( value );
+		long t = bits & D_T_MASK;
+		int bq = (int) ( bits >>> ( D_P - 1 ) ) & D_BQ_MASK;
+
+		if( bq == D_BQ_MASK )
+			return special( t != 0, bits < 0, buffer, offset );
+
+		if( ( bq == 0 ) && ( t == 0 ) )
+		{
+			// JavaScript does not distinguish negative zero
+			buffer[offset] = '0';
+			return offset + 1;
+		}
+
+		boolean negative = bits < 0;
+
+		if( bq != 0 )
+		{
+			// Normal
+			int mq = -D_Q_MIN + 1 - bq;
+			long c = D_C_MIN | t;
+			if( ( 0 < mq ) && ( mq < D_P ) )
+			{
+				// Integer
+				long f = c >> mq;
+				if( f << mq == c )
+					return format( f, 0, negative, mode, digits, buffer, offset );
+			}
+			return toDecimal( -mq, c, negative, mode, digits, buffer, offset );
+		}
+
+		// Subnormal
+		return toDecimal( D_Q_MIN, t, negative, mode, digits, buffer, offset );
+	}
+
+	/**
+	 * Writes the shortest decimal representation of the float. Note that this
+	 * is usually shorter than that of the float widened to a double.
+	 * 
+	 * @param value
+	 *        The float
+	 * @param buffer
+	 *        The buffer (must have at least {@link #MAX_LENGTH} chars available
+	 *        from the offset)
+	 * @param offset
+	 *        Where to start writing in the buffer
+	 * @return The offset after the last char written
+	 */
+	public static int toChars( float value, char[] buffer, int offset )
+	{
+		return toChars( value, SHORTEST, 0, buffer, offset );
+	}
+
+	/**
+	 * Writes the decimal representation of the float. Note that this
+	 * is usually shorter than that of the float widened to a double.
+	 * 
+	 * @param value
+	 *        The float
+	 * @param mode
+	 *        {@link #SHORTEST}, {@link #DECIMAL_PLACES} or
+	 *        {@link #SIGNIFICANT_DIGITS}
+	 * @param digits
+	 *        The number of digits for the mode (ignored for
+	 *        {@link #SHORTEST})
+	 * @param buffer
+	 *        The buffer (must have at least {@link #MAX_LENGTH} chars available
+	 *        from the offset)
+	 * @param offset
+	 *        Where to start writing in the buffer
+	 * @return The offset after the last char written
+	 */
+	public static int toChars( float value, int mode, int digits, char[] buffer, int offset )
+	{
+		int bits = Float.floatToRawIntBits( value );
+		int t = bits & F_T_MASK;
+		int bq = ( bits >>> ( F_P - 1 ) ) & F_BQ_MASK;
+
+		if( bq == F_BQ_MASK )
+			return special( t != 0, bits < 0, buffer, offset );
+
+		if( ( bq == 0 ) && ( t == 0 ) )
+		{
+			// JavaScript does not distinguish negative zero
+			buffer[offset] = '0';
+			return offset + 1;
+		}
+
+		boolean negative = bits < 0;
+
+		if( bq != 0 )
+		{
+			// Normal
+			int mq = -F_Q_MIN + 1 - bq;
+			int c = F_C_MIN | t;
+			if( ( 0 < mq ) && ( mq < F_P ) )
+			{
+				// Integer
+				int f = c >> mq;
+				if( f << mq == c )
+					return format( f, 0, negative, mode, digits, buffer, offset );
+			}
+			return toDecimal( -mq, c, negative, mode, digits, buffer, offset );
+		}
+
+		// Subnormal
+		return toDecimal( F_Q_MIN, t, negative, mode, digits, buffer, offset );
+	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	private static final int D_P = 53;
+
+	private static final int D_Q_MIN = -1074;
+
+	private static final long D_C_MIN = 1L << ( D_P - 1 );
+
+	private static final int D_BQ_MASK = ( 1 << 11 ) - 1;
+
+	private static final long D_T_MASK = ( 1L << ( D_P - 1 ) ) - 1;
+
+	private static final int F_P = 24;
+
+	private static final int F_Q_MIN = -149;
+
+	private static final int F_C_MIN = 1 << ( F_P - 1 );
+
+	private static final int F_BQ_MASK = ( 1 << 8 ) - 1;
+
+	private static final int F_T_MASK = ( 1 << ( F_P - 1 ) ) - 1;
+
+	private static final long MASK_63 = ( 1L << 63 ) - 1;
+
+	private static final long MASK_32 = ( 1L << 32 ) - 1;
+
+	private static final int K_MIN = -324;
+
+	private static final int K_MAX = 292;
+
+	/**
+	 * For each k from {@link #K_MIN} to {@link #K_MAX}, the 126-bit g such
+	 * that (g - 1) 2^r &lt;= 10^-k &lt; g 2^r, split into its upper bits (g1)
+	 * and lower 63 bits (g0).
+	 */
+	private static final long[] G = new long[2 * ( K_MAX - K_MIN + 1 )];
+
+	/**
+	 * Shortest digits never exceed 17, so dropping more than 18 always rounds
+	 * to zero.
+	 */
+	private static final int MAX_DROP = 18;
+
+	private static final long[] POWERS_OF_TEN = new long[MAX_DROP + 1];
+
+	private static int toDecimal( int q, long c, boolean negative, int mode, int digits, char[] buffer, int offset )
+	{
+		int out = (int) c & 1;
+		long cb = c << 2;
+		long cbr = cb + 2;
+		long cbl;
+		int k;
+		if( ( c != D_C_MIN ) || ( q == D_Q_MIN ) )
+		{
+			cbl = cb - 2;
+			k = flog10pow2( q );
+		}
+		else
+		{
+			// The predecessor is closer than the successor
+			cbl = cb - 1;
+			k = flog10threeQuartersPow2( q );
+		}
+		int h = q + flog2pow10( -k ) + 2;
+
+		int index = ( k - K_MIN ) << 1;
+		long g1 = G[index];
+		long g0 = G[index + 1];
+
+		long vb = rop( g1, g0, cb << h );
+		long vbl = rop( g1, g0, cbl << h );
+		long vbr = rop( g1, g0, cbr << h );
+
+		long s = vb >> 2;
+
+		// Try one digit less (for subnormals this may leave a single digit)
+		long sp10 = 10 * multiplyHigh( s, 115292150460684698L << 4 );
+		long tp10 = sp10 + 10;
+		boolean upin = vbl + out <= sp10 << 2;
+		boolean wpin = ( tp10 << 2 ) + out <= vbr;
+		if( upin != wpin )
+			return format( upin ? sp10 : tp10, k, negative, mode, digits, buffer, offset );
+
+		long t = s + 1;
+		boolean uin = vbl + out <= s << 2;
+		boolean win = ( t << 2 ) + out <= vbr;
+		if( uin != win )
+			return format( uin ? s : t, k, negative, mode, digits, buffer, offset );
+
+		// Both are in the rounding interval, so pick the closer (or even)
+		long cmp = vb - ( ( s + t ) << 1 );
+		return format( ( cmp < 0 ) || ( ( cmp == 0 ) && ( ( s & 1 ) == 0 ) ) ? s : t, k, negative, mode, digits, buffer, offset );
+	}
+
+	private static int toDecimal( int q, int c, boolean negative, int mode, int digits, char[] buffer, int offset )
+	{
+		int out = c & 1;
+		long cb = c << 2;
+		long cbr = cb + 2;
+		long cbl;
+		int k;
+		if( ( c != F_C_MIN ) || ( q == F_Q_MIN ) )
+		{
+			cbl = cb - 2;
+			k = flog10pow2( q );
+		}
+		else
+		{
+			// The predecessor is closer than the successor
+			cbl = cb - 1;
+			k = flog10threeQuartersPow2( q );
+		}
+		int h = q + flog2pow10( -k ) + 33;
+
+		long g = G[( k - K_MIN ) << 1] + 1;
+
+		int vb = rop( g, cb << h );
+		int vbl = rop( g, cbl << h );
+		int vbr = rop( g, cbr << h );
+
+		int s = vb >> 2;
+
+		// Try one digit less (for subnormals this may leave a single digit)
+		int sp10 = 10 * (int) ( ( s * 1717986919L ) >>> 34 );
+		int tp10 = sp10 + 10;
+		boolean upin = vbl + out <= sp10 << 2;
+		boolean wpin = ( tp10 << 2 ) + out <= vbr;
+		if( upin != wpin )
+			return format( upin ? sp10 : tp10, k, negative, mode, digits, buffer, offset );
+
+		int t = s + 1;
+		boolean uin = vbl + out <= s << 2;
+		boolean win = ( t << 2 ) + out <= vbr;
+		if( uin != win )
+			return format( uin ? s : t, k, negative, mode, digits, buffer, offset );
+
+		// Both are in the rounding interval, so pick the closer (or even)
+		int cmp = vb - ( ( s + t ) << 1 );
+		return format( ( cmp < 0 ) || ( ( cmp == 0 ) && ( ( s & 1 ) == 0 ) ) ? s : t, k, negative, mode, digits, buffer, offset );
+	}
+
+	/**
+	 * Writes f 10^e in JavaScript number format, rounding it first according
+	 * to the mode.
+	 */
+	private static int format( long f, int e, boolean negative, int mode, int digits, char[] buffer, int offset )
+	{
+		int drop = 0;
+		if( mode == DECIMAL_PLACES )
+			drop = -digits - e;
+		else if( mode == SIGNIFICANT_DIGITS )
+			drop = LongToDecimal.digitCount( f ) - digits;
+
+		if( drop > 0 )
+		{
+			// Round half up
+			if( drop > MAX_DROP )
+				f = 0;
+			else
+			{
+				long p = POWERS_OF_TEN[drop];
+				long r = f % p;
+				f /= p;
+				if( r >= p - r )
+					f++;
+			}
+			e += drop;
+		}
+
+		if( f == 0 )
+		{
+			// JavaScript does not distinguish negative zero
+			buffer[offset] = '0';
+			return offset + 1;
+		}
+
+		if( negative )
+			buffer[offset++] = '-';
+
+		while( f % 10 == 0 )
+		{
+			f /= 10;
+			e++;
+		}
+
+		int length = LongToDecimal.digitCount( f );
+		int point = e + length;
+
+		if( ( point < -5 ) || ( point > 21 ) )
+		{
+			// Exponential: d[.ddd]e[+-]x
+			int end = LongToDecimal.toChars( f, buffer, offset + 1 );
+			buffer[offset] = buffer[offset + 1];
+			if( length > 1 )
+				buffer[offset + 1] = '.';
+			else
+				end--;
+			buffer[end++] = 'e';
+			int exponent = point - 1;
+			if( exponent < 0 )
+			{
+				buffer[end++] = '-';
+				exponent = -exponent;
+			}
+			else
+				buffer[end++] = '+';
+			return LongToDecimal.toChars( exponent, buffer, end );
+		}
+		else if( point <= 0 )
+		{
+			// 0.[000]ddd
+			buffer[offset++] = '0';
+			buffer[offset++] = '.';
+			for( int i = point; i < 0; i++ )
+				buffer[offset++] = '0';
+			return LongToDecimal.toChars( f, buffer, offset );
+		}
+		else if( point >= length )
+		{
+			// ddd[000]
+			int end = LongToDecimal.toChars( f, buffer, offset );
+			for( int i = length; i < point; i++ )
+				buffer[end++] = '0';
+			return end;
+		}
+		else
+		{
+			// ddd.ddd
+			int end = LongToDecimal.toChars( f, buffer, offset + 1 );
+			System.arraycopy( buffer, offset + 1, buffer, offset, point );
+			buffer[offset + point] = '.';
+			return end;
+		}
+	}
+
+	private static int special( boolean nan, boolean negative, char[] buffer, int offset )
+	{
+		String string = nan ? "NaN" : negative ? "-Infinity" : "Infinity";
+		string.getChars( 0, string.length(), buffer, offset );
+		return offset + string.length();
+	}
+
+	/**
+	 * floor(log10(2^e))
+	 */
+	private static int flog10pow2( int e )
+	{
+		return (int) ( ( e * 661971961083L ) >> 41 );
+	}
+
+	/**
+	 * floor(log10(3/4 2^e))
+	 */
+	private static int flog10threeQuartersPow2( int e )
+	{
+		return (int) ( ( e * 661971961083L - 274743187321L ) >> 41 );
+	}
+
+	/**
+	 * floor(log2(10^e))
+	 */
+	private static int flog2pow10( int e )
+	{
+		return (int) ( ( e * 913124641741L ) >> 38 );
+	}
+
+	/**
+	 * The upper bits of g cp, rounded to odd.
+	 */
+	private static long rop( long g1, long g0, long cp )
+	{
+		long x1 = multiplyHigh( g0, cp );
+		long y0 = g1 * cp;
+		long y1 = multiplyHigh( g1, cp );
+		long z = ( y0 >>> 1 ) + x1;
+		long vbp = y1 + ( z >>> 63 );
+		return vbp | ( ( z & MASK_63 ) + MASK_63 ) >>> 63;
+	}
+
+	/**
+	 * The upper bits of g cp, rounded to odd.
+	 */
+	private static int rop( long g, long cp )
+	{
+		long x1 = multiplyHigh( g, cp );
+		long vbp = x1 >>> 31;
+		return (int) ( vbp | ( ( x1 & MASK_32 ) + MASK_32 ) >>> 32 );
+	}
+
+	/**
+	 * The upper 64 bits of the 128-bit product.
+	 */
+	private static long multiplyHigh( long x, long y )
+	{
+		long x1 = x >> 32;
+		long x2 = x & 0xFFFFFFFFL;
+		long y1 = y >> 32;
+		long y2 = y & 0xFFFFFFFFL;
+		long z2 = x2 * y2;
+		long t = x1 * y2 + ( z2 >>> 32 );
+		long z1 = t & 0xFFFFFFFFL;
+		long z0 = t >> 32;
+		z1 += x2 * y1;
+		return x1 * y1 + z0 + ( z1 >> 32 );
+	}
+
+	static
+	{
+		POWERS_OF_TEN[0] = 1;
+		for( int i = 1; i <= MAX_DROP; i++ )
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+
+		BigInteger mask63 = BigInteger.valueOf( MASK_63 );
+		for( int k = K_MIN; k <= K_MAX; k++ )
+		{
+			// g = floor(10^-k 2^(125 - r)) + 1, where r = floor(log2(10^-k))
+			int shift = 125 - flog2pow10( -k );
+			BigInteger g;
+			if( k <= 0 )
+			{
+				BigInteger pow = BigInteger.TEN.pow( -k );
+				g = shift >= 0 ? pow.shiftLeft( shift ) : pow.shiftRight( -shift );
+			}
+			else
+				g = BigInteger.ONE.shiftLeft( shift ).divide( BigInteger.TEN.pow( k ) );
+			g = g.add( BigInteger.ONE );
+
+			int index = ( k - K_MIN ) << 1;
+			G[index] = g.shiftRight( 63 ).longValue();
+			G[index + 1] = g.and( mask63 ).longValue();
+		}
+	}
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+
+package com.threecrickets.jvm.json.internal;
+
+/**
+ * Writes integers as decimal digits directly into a char buffer, two digits at
+ * a time via lookup tables, without creating intermediate strings.
+ * 
+ * @author Tal Liron
+ */
+public class LongToDecimal
+{
+	//
+	// Static attributes
+	//
+
+	/**
+	 * The maximum number of chars written for a long, including the sign.
+	 */
+	public static final int MAX_LENGTH = 20;
+
+	//
+	// Static operations
+	//
+
+	/**
+	 * Writes the decimal representation of the value.
+	 * 
+	 * @param value
+	 *        The value
+	 * @param buffer
+	 *        The buffer (must have at least {@link #MAX_LENGTH} chars available
+	 *        from the offset)
+	 * @param offset
+	 *        Where to start writing in the buffer
+	 * @return The offset after the last char written
+	 */
+	public static int toChars( long value, char[] buffer, int offset )
+	{
+		if( value < 0 )
+		{
+			if( value == Long.MIN_VALUE )
+			{
+				MIN_VALUE.getChars( 0, MIN_VALUE.length(), buffer, offset );
+				return offset + MIN_VALUE.length();
+			}
+			buffer[offset++] = '-';
+			value = -value;
+		}
+
+		int end = offset + digitCount( value );
+		int position = end;
+
+		// Two digits at a time using long arithmetic
+		while( value > Integer.MAX_VALUE )
+		{
+			long q = value / 100;
+			int r = (int) ( value - q * 100 );
+			value = q;
+			buffer[--position] = DIGIT_ONES[r];
+			buffer[--position] = DIGIT_TENS[r];
+		}
+
+		// Two digits at a time using int arithmetic
+		int i = (int) value;
+		while( i >= 100 )
+		{
+			int q = i / 100;
+			int r = i - q * 100;
+			i = q;
+			buffer[--position] = DIGIT_ONES[r];
+			buffer[--position] = DIGIT_TENS[r];
+		}
+
+		// Last one or two digits
+		if( i >= 10 )
+		{
+			buffer[--position] = DIGIT_ONES[i];
+			buffer[--position] = DIGIT_TENS[i];
+		}
+		else
+			buffer[--position] = (char) ( '0' + i );
+
+		return end;
+	}
+
+	/**
+	 * The number of decimal digits in a non-negative value.
+	 * 
+	 * @param value
+	 *        The non-negative value
+	 * @return The number of digits
+	 */
+	public static int digitCount( long value )
+	{
+		long p = 10;
+		for( int i = 1; i < 19; i++ )
+		{
+			if( value < p )
+				return i;
+			p *= 10;
+		}
+		return 19;
+	}
+
+	/**
+	 * The tens digit for each number from 0 to 99.
+	 */
+	static final char[] DIGIT_TENS = new char[100];
+
+	/**
+	 * The ones digit for each number from 0 to 99.
+	 */
+	static final char[] DIGIT_ONES = new char[100];
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	private static final String MIN_VALUE = "-9223372036854775808";
+
+	static
+	{
+		for( int i = 0; i < 100; i++ )
+		{
+			DIGIT_TENS[i] = (char) ( '0' + i / 10 );
+			DIGIT_ONES[i] = (char) ( '0' + i % 10 );
+		}
+	}
+}
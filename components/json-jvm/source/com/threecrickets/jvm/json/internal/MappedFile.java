@@ -0,0 +1,143 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+
+package com.threecrickets.jvm.json.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Random access to the bytes of a file of any size, by memory-mapping it in
+ * regions (a single mapping is limited to 2 GB).
+ * <p>
+ * Each region also maps the first few bytes of the next region, so that a
+ * multi-byte UTF-8 char that starts in a region can always be decoded from it.
+ * 
+ * @author Tal Liron
+ */
+public class MappedFile
+{
+	//
+	// Construction
+	//
+
+	/**
+	 * Constructor. Maps the whole file.
+	 * 
+	 * @param channel
+	 *        The file channel
+	 * @throws IOException
+	 *         In case of a mapping error
+	 */
+	public MappedFile( FileChannel channel ) throws IOException
+	{
+		size = channel.size();
+		int count = (int) ( ( size + REGION_SIZE - 1 ) / REGION_SIZE );
+		regions = new MappedByteBuffer[count];
+		for( int i = 0; i < count; i++ )
+		{
+			long position = (long) i * REGION_SIZE;
+			regions[i] = channel.map( FileChannel.MapMode.READ_ONLY, position, Math.min( size - position, REGION_SIZE + REGION_OVERLAP ) );
+		}
+	}
+
+	//
+	// Attributes
+	//
+
+	/**
+	 * The file size.
+	 */
+	public final long size;
+
+	//
+	// Operations
+	//
+
+	/**
+	 * A byte.
+	 * 
+	 * @param index
+	 *        The index in the file
+	 * @return The byte
+	 */
+	public byte get( long index )
+	{
+		return regions[(int) ( index >>> REGION_BITS )].get( (int) ( index & REGION_MASK ) );
+	}
+
+	/**
+	 * The mapped bytes from an index to the end of its region, including the
+	 * overlap with the next region.
+	 * 
+	 * @param index
+	 *        The index in the file
+	 * @return The bytes (starting at position 0)
+	 */
+	public ByteBuffer region( long index )
+	{
+		ByteBuffer bytes = regions[(int) ( index >>> REGION_BITS )].duplicate();
+		bytes.position( (int) ( index & REGION_MASK ) );
+		return bytes.slice();
+	}
+
+	/**
+	 * Decodes a range of UTF-8 bytes. Ranges within a single region are
+	 * decoded directly from the mapped bytes.
+	 * 
+	 * @param start
+	 *        The start index
+	 * @param end
+	 *        The end index (exclusive)
+	 * @return The chars
+	 */
+	public CharBuffer decode( long start, long end )
+	{
+		int region = (int) ( start >>> REGION_BITS );
+		ByteBuffer bytes;
+		if( region == (int) ( ( end - 1 ) >>> REGION_BITS ) )
+		{
+			bytes = regions[region].duplicate();
+			int offset = (int) ( start & REGION_MASK );
+			bytes.limit( offset + (int) ( end - start ) ).position( offset );
+		}
+		else
+		{
+			byte[] copy = new byte[(int) ( end - start )];
+			for( int i = 0; i < copy.length; i++ )
+				copy[i] = get( start + i );
+			bytes = ByteBuffer.wrap( copy );
+		}
+		return UTF8.decode( bytes );
+	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	private static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+	private static final int REGION_BITS = 30;
+
+	private static final long REGION_SIZE = 1L << REGION_BITS;
+
+	private static final long REGION_MASK = REGION_SIZE - 1;
+
+	/**
+	 * The longest incomplete UTF-8 char.
+	 */
+	private static final int REGION_OVERLAP = 3;
+
+	private final MappedByteBuffer[] regions;
+}
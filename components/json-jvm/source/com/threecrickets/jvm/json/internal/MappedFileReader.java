@@ -0,0 +1,218 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+
+package com.threecrickets.jvm.json.internal;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Reads UTF-8 text from a file by memory-mapping it, decoding directly from
+ * the mapped bytes into a char buffer. There is no intermediate copy of the
+ * bytes on the heap, and the OS page cache does the I/O.
+ * <p>
+ * The file is mapped via {@link MappedFile}. Decoding continues in the next
+ * region exactly where it stopped, so that a multi-byte char that crosses the
+ * end of a region is decoded whole (from the overlap).
+ * <p>
+ * Supports marking (within the read-ahead limit), so that it does not need to
+ * be wrapped in a {@link java.io.BufferedReader}.
+ * 
+ * @author Tal Liron
+ */
+public class MappedFileReader extends Reader
+{
+	//
+	// Construction
+	//
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param channel
+	 *        The file channel (will be read from its current position, and
+	 *        will not be closed)
+	 * @throws IOException
+	 *         In case of a read error
+	 */
+	public MappedFileReader( FileChannel channel ) throws IOException
+	{
+		mapped = new MappedFile( channel );
+		filePosition = channel.position();
+		fileSize = mapped.size;
+		decoder = UTF8.newDecoder().onMalformedInput( CodingErrorAction.REPLACE ).onUnmappableCharacter( CodingErrorAction.REPLACE );
+		chars.flip();
+	}
+
+	//
+	// Reader
+	//
+
+	@Override
+	public int read() throws IOException
+	{
+		if( !chars.hasRemaining() && !fill() )
+			return -1;
+		return chars.get();
+	}
+
+	@Override
+	public int read( char[] buffer, int offset, int length ) throws IOException
+	{
+		if( length == 0 )
+			return 0;
+		if( !chars.hasRemaining() && !fill() )
+			return -1;
+		length = Math.min( length, chars.remaining() );
+		chars.get( buffer, offset, length );
+		return length;
+	}
+
+	@Override
+	public boolean ready()
+	{
+		return chars.hasRemaining() || ( filePosition < fileSize );
+	}
+
+	@Override
+	public boolean markSupported()
+	{
+		return true;
+	}
+
+	@Override
+	public void mark( int readAheadLimit )
+	{
+		mark = chars.position();
+		this.readAheadLimit = readAheadLimit;
+	}
+
+	@Override
+	public void reset() throws IOException
+	{
+		if( mark == -1 )
+			throw new IOException( "Mark invalid" );
+		chars.position( mark );
+	}
+
+	@Override
+	public void close()
+	{
+		region = null;
+		eof = true;
+	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	private static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate( 0 );
+
+	private static final int BUFFER_SIZE = 16 * 1024;
+
+	private final MappedFile mapped;
+
+	private final long fileSize;
+
+	private final CharsetDecoder decoder;
+
+	/**
+	 * The file position at the start of the current region.
+	 */
+	private long filePosition;
+
+	private ByteBuffer region;
+
+	private CharBuffer chars = CharBuffer.allocate( BUFFER_SIZE );
+
+	private int mark = -1;
+
+	private int readAheadLimit;
+
+	private boolean eof;
+
+	/**
+	 * Decodes more chars, keeping the marked chars if there is a mark.
+	 * 
+	 * @return False if there are no more chars
+	 */
+	private boolean fill() throws IOException
+	{
+		if( mark != -1 )
+		{
+			if( chars.position() - mark >= readAheadLimit )
+				mark = -1;
+			else
+			{
+				chars.position( mark );
+				mark = 0;
+			}
+		}
+		if( mark == -1 )
+			chars.position( chars.limit() );
+		chars.compact();
+		if( !chars.hasRemaining() )
+		{
+			// Grow to fit the marked chars
+			CharBuffer grown = CharBuffer.allocate( chars.capacity() * 2 );
+			chars.flip();
+			grown.put( chars );
+			chars = grown;
+		}
+		int start = chars.position();
+
+		while( ( chars.position() == start ) && !eof )
+		{
+			if( region == null )
+			{
+				if( filePosition >= fileSize )
+				{
+					eof = true;
+					decoder.decode( EMPTY, chars, true );
+					decoder.flush( chars );
+					break;
+				}
+				region = mapped.region( filePosition );
+			}
+
+			boolean last = filePosition + region.limit() == fileSize;
+			CoderResult result = decoder.decode( region, chars, last );
+			if( last )
+			{
+				if( !region.hasRemaining() )
+				{
+					eof = true;
+					decoder.flush( chars );
+				}
+			}
+			else if( result.isUnderflow() )
+			{
+				// Continue from where decoding stopped, which might be in the
+				// overlap with the next region
+				filePosition += region.position();
+				region = null;
+			}
+		}
+
+		chars.flip();
+		if( mark != -1 )
+			chars.position( start );
+		return chars.hasRemaining();
+	}
+}
@@ -0,0 +1,428 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+
+package com.threecrickets.jvm.json.internal;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.threecrickets.jvm.json.DenseArrayJsonImplementation;
+import com.threecrickets.jvm.json.JsonImplementation;
+import com.threecrickets.jvm.json.JsonSyntaxError;
+
+/**
+ * Decodes a single, very large JSON array by decoding its elements in
+ * parallel.
+ * <p>
+ * The text is read in blocks. Each block is quickly scanned for the commas
+ * between top-level elements (tracking quotes, escapes and bracket depth, so
+ * that commas inside strings and nested values are ignored), and is cut after
+ * the last such comma. The scan follows the same array grammar as
+ * {@link com.threecrickets.jvm.json.JsonDecoder#decodeArray()}, including its
+ * handling of missing elements, and rejects text after an element and a wrong
+ * closing bracket. The elements of each block are then decoded by a task on
+ * the executor, while the next block is being scanned.
+ * Finally, the array is assembled in order, via
+ * {@link DenseArrayJsonImplementation#createArray(Object[])} if supported,
+ * and otherwise via {@link JsonImplementation#createArray(int)} and
+ * {@link JsonImplementation#setInArray(Object, int, Object)}.
+ * <p>
+ * Without an executor, the array is simply decoded by a single decoder.
+ * 
+ * @author Tal Liron
+ */
+public class ParallelArrayDecoder
+{
+	//
+	// Construction
+	//
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param implementation
+	 *        The implementation
+	 * @param reader
+	 *        The reader
+	 * @param allowTransform
+	 *        Whether to allow transformations
+	 * @param executor
+	 *        The executor, or null to decode in the current thread (always
+	 *        the case for thread-bound implementations)
+	 */
+	public ParallelArrayDecoder( JsonImplementation implementation, Reader reader, boolean allowTransform, ExecutorService executor )
+	{
+		this.implementation = implementation;
+		this.reader = reader;
+		this.allowTransform = allowTransform;
+		this.executor = Tasks.isThreadBound( implementation ) ? null : executor;
+	}
+
+	//
+	// Operations
+	//
+
+	/**
+	 * Decode the array.
+	 * 
+	 * @return An array
+	 * @throws JsonSyntaxError
+	 *         In case of a JSON syntax error
+	 * @throws IOException
+	 *         In case of a read error
+	 */
+	public Object decode() throws JsonSyntaxError, IOException
+	{
+		// A single decoder for the whole array
+		if( executor == null )
+			return implementation.createDecoder( reader, allowTransform ).decodeArray();
+
+		int window = Runtime.getRuntime().availableProcessors() * 2;
+		ArrayDeque<Block> blocks = new ArrayDeque<Block>();
+		ArrayDeque<Future<Object[]>> futures = new ArrayDeque<Future<Object[]>>();
+		List<Object[]> results = new ArrayList<Object[]>();
+		int length = 0;
+		try
+		{
+			for( ;; )
+			{
+				Block block = readBlock();
+				if( block != null )
+				{
+					blocks.add( block );
+					futures.add( executor.submit( block ) );
+				}
+
+				while( !futures.isEmpty() && ( ( block == null ) || ( futures.size() >= window ) ) )
+				{
+					Object[] values = Tasks.get( futures.poll(), JsonSyntaxError.class );
+					length -= drop( results, blocks.poll().drop );
+					results.add( values );
+					length += values.length;
+				}
+
+				if( block == null )
+					break;
+			}
+		}
+		finally
+		{
+			Tasks.cancel( futures );
+		}
+
+		Object array;
+		if( implementation instanceof DenseArrayJsonImplementation )
+		{
+			Object[] elements = new Object[length];
+			int index = 0;
+			for( Object[] values : results )
+			{
+				System.arraycopy( values, 0, elements, index, values.length );
+				index += values.length;
+			}
+			array = ( (DenseArrayJsonImplementation) implementation ).createArray( elements );
+		}
+		else
+		{
+			array = implementation.createArray( length );
+			int index = 0;
+			for( Object[] values : results )
+				for( Object value : values )
+					implementation.setInArray( array, index++, value );
+		}
+		return allowTransform ? TransformerIndex.get( implementation ).transformArray( array, implementation ) : array;
+	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	private static final int BLOCK_SIZE = 256 * 1024;
+
+	private final JsonImplementation implementation;
+
+	private final Reader reader;
+
+	private final boolean allowTransform;
+
+	private final ExecutorService executor;
+
+	private char[] buffer = new char[BLOCK_SIZE];
+
+	private int count;
+
+	private int line = 1;
+
+	private char close;
+
+	/**
+	 * The number of elements in the blocks read so far.
+	 */
+	private int elementCount;
+
+	private boolean started;
+
+	private boolean ended;
+
+	private boolean eof;
+
+	/**
+	 * Reads the next block of elements, or returns null if there are no more.
+	 */
+	private Block readBlock() throws JsonSyntaxError, IOException
+	{
+		if( ended )
+			return null;
+
+		for( ;; )
+		{
+			while( !eof && ( count < buffer.length ) )
+			{
+				int read = reader.read( buffer, count, buffer.length - count );
+				if( read == -1 )
+					eof = true;
+				else
+					count += read;
+			}
+
+			if( !started )
+				start();
+
+			Block block = scan();
+			if( block != null )
+				return block;
+
+			if( eof )
+				throw new JsonSyntaxError( "A JSON array text must end with ']'", line, 0 );
+
+			// A single element is larger than the buffer
+			buffer = Arrays.copyOf( buffer, buffer.length * 2 );
+		}
+	}
+
+	/**
+	 * Consumes the opening bracket.
+	 */
+	private void start() throws JsonSyntaxError
+	{
+		int i = 0;
+		while( ( i < count ) && ( buffer[i] <= ' ' ) )
+			if( buffer[i++] == '\n' )
+				line++;
+		if( ( i == count ) || ( ( buffer[i] != '[' ) && ( buffer[i] != '(' ) ) )
+			throw new JsonSyntaxError( "A JSON array text must start with '['", line, 0 );
+		close = buffer[i] == '[' ? ']' : ')';
+		i++;
+		count -= i;
+		System.arraycopy( buffer, i, buffer, 0, count );
+		started = true;
+	}
+
+	/**
+	 * Scans the buffer for top-level elements and cuts a block after the last
+	 * comma (or the closing bracket).
+	 */
+	private Block scan() throws JsonSyntaxError
+	{
+		int[] starts = new int[64];
+		int[] ends = new int[64];
+		int elements = 0;
+		int elementStart = 0;
+		int cut = 0;
+		int depth = 0;
+		char quote = 0;
+		int drop = 0;
+		// 0: before the element, 1: in the element, 2: after a complete
+		// string, object or array
+		int state = 0;
+		for( int i = 0; i < count; i++ )
+		{
+			char c = buffer[i];
+			if( quote != 0 )
+			{
+				if( c == '\\' )
+					i++;
+				else if( c == quote )
+				{
+					quote = 0;
+					if( depth == 0 )
+						state = 2;
+				}
+			}
+			else if( depth > 0 )
+			{
+				if( ( c == '"' ) || ( c == '\'' ) )
+					quote = c;
+				else if( ( c == '{' ) || ( c == '[' ) || ( c == '(' ) )
+					depth++;
+				else if( ( ( c == '}' ) || ( c == ']' ) || ( c == ')' ) ) && ( --depth == 0 ) )
+					state = 2;
+			}
+			else if( c <= ' ' )
+			{
+				// Whitespace inside an unquoted value is part of the value
+			}
+			else if( ( c == ',' ) || ( c == ';' ) || ( c == close ) )
+			{
+				if( state == 0 )
+				{
+					// As in JsonDecoder, a missing element before a separator
+					// removes the previous element, and a missing element
+					// before the closing bracket is ignored
+					if( c != close )
+					{
+						if( elements > 0 )
+							elements--;
+						else if( drop < elementCount )
+							drop++;
+						else
+							throw error( "Missing value", i );
+					}
+				}
+				else
+				{
+					if( elements == starts.length )
+					{
+						starts = Arrays.copyOf( starts, elements * 2 );
+						ends = Arrays.copyOf( ends, elements * 2 );
+					}
+					starts[elements] = elementStart;
+					ends[elements] = i;
+					elements++;
+				}
+				elementStart = cut = i + 1;
+				state = 0;
+				if( c == close )
+				{
+					ended = true;
+					break;
+				}
+			}
+			else if( ( c == '}' ) || ( c == ']' ) || ( c == ')' ) || ( state == 2 ) )
+				throw error( "Expected a ',' or ']'", i );
+			else if( ( c == '"' ) || ( c == '\'' ) || ( c == '{' ) || ( c == '[' ) || ( c == '(' ) )
+			{
+				if( state == 1 )
+					throw error( "Expected a ',' or ']'", i );
+				if( ( c == '"' ) || ( c == '\'' ) )
+					quote = c;
+				else
+					depth++;
+				state = 1;
+			}
+			else
+				state = 1;
+		}
+
+		if( cut == 0 )
+			return null;
+
+		Block block = new Block( new String( buffer, 0, cut ), line, Arrays.copyOf( starts, elements ), Arrays.copyOf( ends, elements ), drop );
+		for( int i = 0; i < cut; i++ )
+			if( buffer[i] == '\n' )
+				line++;
+		count -= cut;
+		System.arraycopy( buffer, cut, buffer, 0, count );
+		elementCount += elements - drop;
+		return block;
+	}
+
+	/**
+	 * Removes elements from the end of the results.
+	 * 
+	 * @return The number of elements removed
+	 */
+	private static int drop( List<Object[]> results, int drop )
+	{
+		int dropped = drop;
+		while( drop > 0 )
+		{
+			int last = results.size() - 1;
+			Object[] values = results.get( last );
+			if( values.length <= drop )
+			{
+				results.remove( last );
+				drop -= values.length;
+			}
+			else
+			{
+				results.set( last, Arrays.copyOf( values, values.length - drop ) );
+				drop = 0;
+			}
+		}
+		return dropped;
+	}
+
+	private JsonSyntaxError error( String message, int position )
+	{
+		int errorLine = line;
+		for( int i = 0; i < position; i++ )
+			if( buffer[i] == '\n' )
+				errorLine++;
+		return new JsonSyntaxError( message, errorLine, 0 );
+	}
+
+	/**
+	 * Decodes the elements in a block.
+	 */
+	private class Block implements Callable<Object[]>
+	{
+		public Block( String text, int line, int[] starts, int[] ends, int drop )
+		{
+			this.text = text;
+			this.line = line;
+			this.starts = starts;
+			this.ends = ends;
+			this.drop = drop;
+		}
+
+		/**
+		 * The number of elements of previous blocks to remove before adding
+		 * the elements of this block.
+		 */
+		public final int drop;
+
+		public Object[] call() throws JsonSyntaxError, IOException
+		{
+			Object[] values = new Object[starts.length];
+			for( int i = 0; i < starts.length; i++ )
+			{
+				try
+				{
+					values[i] = implementation.createDecoder( new CharSequenceReader( text, starts[i], ends[i] ), allowTransform ).decodeValue();
+				}
+				catch( JsonSyntaxError x )
+				{
+					int errorLine = line;
+					for( int j = 0; j < starts[i]; j++ )
+						if( text.charAt( j ) == '\n' )
+							errorLine++;
+					throw new JsonSyntaxError( x.getMessage(), errorLine + x.getLine() - 1, x.getColumn() );
+				}
+			}
+			return values;
+		}
+
+		private final String text;
+
+		private final int line;
+
+		private final int[] starts;
+
+		private final int[] ends;
+	}
+}
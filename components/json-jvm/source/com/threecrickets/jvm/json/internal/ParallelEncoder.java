@@ -0,0 +1,158 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+
+package com.threecrickets.jvm.json.internal;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.threecrickets.jvm.json.JsonContext;
+
+/**
+ * Encodes the entries of very large collections and maps in parallel.
+ * <p>
+ * The entries are split into chunks, each chunk is encoded into its own buffer
+ * via {@link JsonContext#fork(Appendable)}, and the buffers are written in
+ * order, with commas between them. Only a limited number of chunks are in
+ * flight at any time, so memory use is bounded regardless of the size of the
+ * container.
+ * 
+ * @author Tal Liron
+ */
+public class ParallelEncoder
+{
+	//
+	// Static operations
+	//
+
+	/**
+	 * Whether a container of this size should be encoded in parallel. Never
+	 * true for thread-bound implementations.
+	 * 
+	 * @param size
+	 *        The number of entries
+	 * @param context
+	 *        The context
+	 * @return True to encode in parallel
+	 */
+	public static boolean isParallel( int size, JsonContext context )
+	{
+		return ( context.getExecutor() != null ) && ( size >= context.getParallelThreshold() ) && !Tasks.isThreadBound( context.implementation );
+	}
+
+	/**
+	 * Encodes the entries of a JSON array or object, without the enclosing
+	 * brackets.
+	 * 
+	 * @param entries
+	 *        The values, or {@link Map.Entry} instances for a JSON object
+	 * @param object
+	 *        True if the entries are {@link Map.Entry} instances
+	 * @param context
+	 *        The context of the container
+	 * @throws IOException
+	 *         In case of a write error
+	 */
+	public static void encodeEntries( Object[] entries, boolean object, JsonContext context ) throws IOException
+	{
+		ExecutorService executor = context.getExecutor();
+		int length = entries.length;
+		int parallelism = Runtime.getRuntime().availableProcessors();
+		int chunkSize = Math.max( MIN_CHUNK_SIZE, ( length + parallelism * CHUNKS_PER_THREAD - 1 ) / ( parallelism * CHUNKS_PER_THREAD ) );
+		int window = parallelism * 2;
+		int flushInterval = context.getFlushInterval();
+
+		ArrayDeque<Future<StringBuilder>> futures = new ArrayDeque<Future<StringBuilder>>();
+		int next = 0;
+		boolean first = true;
+		try
+		{
+			while( ( next < length ) || !futures.isEmpty() )
+			{
+				while( ( next < length ) && ( futures.size() < window ) )
+				{
+					int end = Math.min( next + chunkSize, length );
+					futures.add( executor.submit( new Chunk( entries, next, end, object, context ) ) );
+					next = end;
+				}
+
+				StringBuilder chunk = Tasks.get( futures.poll(), IOException.class );
+				if( first )
+					first = false;
+				else
+					context.comma();
+				context.out.append( chunk );
+
+				if( flushInterval > 0 )
+					context.flush();
+			}
+		}
+		finally
+		{
+			Tasks.cancel( futures );
+		}
+	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	private static final int MIN_CHUNK_SIZE = 1024;
+
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private static class Chunk implements Callable<StringBuilder>
+	{
+		public Chunk( Object[] entries, int start, int end, boolean object, JsonContext context )
+		{
+			this.entries = entries;
+			this.start = start;
+			this.end = end;
+			this.object = object;
+			this.context = context;
+		}
+
+		public StringBuilder call() throws IOException
+		{
+			StringBuilder out = new StringBuilder();
+			JsonContext context = this.context.fork( out );
+			for( int i = start; i < end; i++ )
+			{
+				if( i > start )
+					context.comma();
+				context.indentNested();
+				if( object )
+				{
+					Map.Entry<?, ?> entry = (Map.Entry<?, ?>) entries[i];
+					context.quotedKey( String.valueOf( entry.getKey() ) );
+					context.colon();
+					context.nest().encode( entry.getValue() );
+				}
+				else
+					context.nest().encode( entries[i] );
+			}
+			return out;
+		}
+
+		private final Object[] entries;
+
+		private final int start;
+
+		private final int end;
+
+		private final boolean object;
+
+		private final JsonContext context;
+	}
+}
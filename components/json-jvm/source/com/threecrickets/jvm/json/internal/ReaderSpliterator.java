@@ -0,0 +1,109 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+
+package com.threecrickets.jvm.json.internal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import com.threecrickets.jvm.json.JsonDecoder;
+import com.threecrickets.jvm.json.JsonSyntaxError;
+
+/**
+ * A spliterator over the elements of a JSON array read from a
+ * {@link JsonDecoder}, decoding one element at a time. Cannot be split.
+ * <p>
+ * Requires JVM 8.
+ * 
+ * @author Tal Liron
+ */
+public class ReaderSpliterator implements Spliterator<Object>
+{
+	//
+	// Construction
+	//
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param decoder
+	 *        The decoder
+	 */
+	public ReaderSpliterator( JsonDecoder decoder )
+	{
+		this.decoder = decoder;
+	}
+
+	//
+	// Spliterator
+	//
+
+	public boolean tryAdvance( Consumer<? super Object> action )
+	{
+		if( done )
+			return false;
+
+		Object value;
+		try
+		{
+			if( !started )
+			{
+				started = true;
+				decoder.startArray();
+			}
+			if( !decoder.hasNextElement() )
+			{
+				done = true;
+				return false;
+			}
+			value = decoder.decodeValue();
+		}
+		catch( JsonSyntaxError x )
+		{
+			done = true;
+			throw new IllegalArgumentException( x.getMessage(), x );
+		}
+		catch( IOException x )
+		{
+			done = true;
+			throw new UncheckedIOException( x );
+		}
+
+		action.accept( value );
+		return true;
+	}
+
+	public Spliterator<Object> trySplit()
+	{
+		return null;
+	}
+
+	public long estimateSize()
+	{
+		return Long.MAX_VALUE;
+	}
+
+	public int characteristics()
+	{
+		return ORDERED;
+	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	private final JsonDecoder decoder;
+
+	private boolean started;
+
+	private boolean done;
+}
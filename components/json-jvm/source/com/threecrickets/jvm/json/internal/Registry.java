@@ -0,0 +1,406 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+
+package com.threecrickets.jvm.json.internal;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link ArrayList} that publishes an immutable snapshot of its entries
+ * after every modification, ordered by priority.
+ * <p>
+ * Modifications are synchronized and are expected to be rare. Reading via
+ * {@link #getReadOnly()} or {@link #derive} is lock-free and always sees a
+ * complete snapshot, so it is safe to modify the registry while other threads
+ * are reading it. (Reading the list itself is not safe during modifications,
+ * as with any ArrayList.)
+ * <p>
+ * Entries added via {@link #add(Object, int)} are inserted before entries
+ * with lower priorities and after entries with equal priorities. Entries
+ * added via the list methods have priority 0, except that
+ * {@link #add(int, Object)} and {@link #set(int, Object)} insert exactly
+ * where asked.
+ * <p>
+ * Several registries can share a version counter, so that a single number
+ * identifies the state of all of them.
+ * 
+ * @author Tal Liron
+ * @param <E>
+ *        The entry class
+ */
+public class Registry<E> extends ArrayList<E>
+{
+	//
+	// Construction
+	//
+
+	/**
+	 * Constructor.
+	 */
+	public Registry()
+	{
+		this( new AtomicInteger() );
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param version
+	 *        The version counter, which can be shared with other registries
+	 */
+	public Registry( AtomicInteger version )
+	{
+		this.version = version;
+	}
+
+	//
+	// Attributes
+	//
+
+	/**
+	 * Incremented on every modification (of this registry or of any other
+	 * registry sharing its version counter). Can be used to invalidate caches
+	 * derived from the entries.
+	 * 
+	 * @return The version
+	 */
+	public int getVersion()
+	{
+		return version.get();
+	}
+
+	/**
+	 * A read-only view of the current snapshot, which supports
+	 * {@link #derive}.
+	 * 
+	 * @return The view
+	 */
+	public Collection<E> getReadOnly()
+	{
+		return readOnly;
+	}
+
+	//
+	// Operations
+	//
+
+	/**
+	 * Adds an entry.
+	 * 
+	 * @param entry
+	 *        The entry
+	 * @param priority
+	 *        The priority (higher comes first)
+	 */
+	public synchronized void add( E entry, int priority )
+	{
+		int[] priorities = snapshot.priorities;
+		int index = 0;
+		while( ( index < priorities.length ) && ( priorities[index] >= priority ) )
+			index++;
+		this.priorities.put( entry, priority );
+		super.add( index, entry );
+		publish();
+	}
+
+	//
+	// ArrayList
+	//
+
+	/**
+	 * Adds an entry with priority 0.
+	 * 
+	 * @param entry
+	 *        The entry
+	 * @return Always true
+	 */
+	@Override
+	public boolean add( E entry )
+	{
+		add( entry, 0 );
+		return true;
+	}
+
+	@Override
+	public synchronized void add( int index, E entry )
+	{
+		super.add( index, entry );
+		publish();
+	}
+
+	@Override
+	public synchronized boolean addAll( Collection<? extends E> entries )
+	{
+		for( E entry : entries )
+			add( entry, 0 );
+		return !entries.isEmpty();
+	}
+
+	@Override
+	public synchronized boolean addAll( int index, Collection<? extends E> entries )
+	{
+		boolean changed = super.addAll( index, entries );
+		publish();
+		return changed;
+	}
+
+	@Override
+	public synchronized E set( int index, E entry )
+	{
+		E previous = super.set( index, entry );
+		publish();
+		return previous;
+	}
+
+	@Override
+	public synchronized E remove( int index )
+	{
+		E removed = super.remove( index );
+		publish();
+		return removed;
+	}
+
+	@Override
+	public synchronized boolean remove( Object entry )
+	{
+		boolean removed = super.remove( entry );
+		publish();
+		return removed;
+	}
+
+	@Override
+	public synchronized boolean removeAll( Collection<?> entries )
+	{
+		boolean changed = super.removeAll( entries );
+		publish();
+		return changed;
+	}
+
+	@Override
+	public synchronized boolean retainAll( Collection<?> entries )
+	{
+		boolean changed = super.retainAll( entries );
+		publish();
+		return changed;
+	}
+
+	@Override
+	public synchronized void clear()
+	{
+		super.clear();
+		publish();
+	}
+
+	@Override
+	protected synchronized void removeRange( int fromIndex, int toIndex )
+	{
+		super.removeRange( fromIndex, toIndex );
+		publish();
+	}
+
+	// JVM 8 methods (not annotated, so that this compiles on older JVMs too)
+
+	public synchronized boolean removeIf( java.util.function.Predicate<? super E> filter )
+	{
+		boolean changed = super.removeIf( filter );
+		publish();
+		return changed;
+	}
+
+	public synchronized void replaceAll( java.util.function.UnaryOperator<E> operator )
+	{
+		super.replaceAll( operator );
+		publish();
+	}
+
+	public synchronized void sort( Comparator<? super E> comparator )
+	{
+		super.sort( comparator );
+		publish();
+	}
+
+	//
+	// Static operations
+	//
+
+	/**
+	 * Returns a structure derived from the current snapshot of a registry's
+	 * entries, creating it on first use. The structure is cached with the
+	 * snapshot, and so is discarded whenever the registry is modified.
+	 * <p>
+	 * Only a single kind of structure can be derived per registry.
+	 * 
+	 * @param collection
+	 *        The collection, which should be a registry or a read-only view
+	 *        of one (otherwise the structure is derived without caching)
+	 * @param derivation
+	 *        The derivation
+	 * @return The derived structure
+	 * @param <E>
+	 *        The entry class
+	 * @param <D>
+	 *        The derived class
+	 * @see #getReadOnly()
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E, D> D derive( Collection<E> collection, Derivation<E, D> derivation )
+	{
+		Registry<E> registry = null;
+		if( collection instanceof Registry )
+			registry = (Registry<E>) collection;
+		else if( collection instanceof Registry.ReadOnly )
+			registry = ( (Registry<E>.ReadOnly) collection ).getRegistry();
+		if( registry == null )
+			return derivation.derive( collection );
+
+		Snapshot snapshot = registry.snapshot;
+		Object derived = snapshot.derived;
+		if( derived == null )
+			snapshot.derived = derived = derivation.derive( Collections.unmodifiableList( (List<E>) Arrays.asList( snapshot.entries ) ) );
+		return (D) derived;
+	}
+
+	/**
+	 * Creates a structure from registry entries.
+	 * 
+	 * @param <E>
+	 *        The entry class
+	 * @param <D>
+	 *        The derived class
+	 */
+	public interface Derivation<E, D>
+	{
+		/**
+		 * Creates the structure.
+		 * 
+		 * @param entries
+		 *        The entries, in order
+		 * @return The structure
+		 */
+		public D derive( Collection<E> entries );
+	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	private static final long serialVersionUID = 1L;
+
+	private final AtomicInteger version;
+
+	/**
+	 * Explicit priorities by entry identity. Entries without one have priority
+	 * 0.
+	 */
+	private final Map<Object, Integer> priorities = new IdentityHashMap<Object, Integer>();
+
+	private volatile Snapshot snapshot = new Snapshot( new Object[0], new int[0] );
+
+	private final ReadOnly readOnly = new ReadOnly();
+
+	/**
+	 * Replaces the snapshot. The version is incremented only after the new
+	 * snapshot is visible, so that a reader that sees the new version will
+	 * also see the new entries.
+	 */
+	private void publish()
+	{
+		Object[] entries = toArray();
+		int[] priorities = new int[entries.length];
+		Map<Object, Integer> retained = new IdentityHashMap<Object, Integer>();
+		for( int i = 0; i < entries.length; i++ )
+		{
+			Integer priority = this.priorities.get( entries[i] );
+			if( priority != null )
+			{
+				priorities[i] = priority.intValue();
+				retained.put( entries[i], priority );
+			}
+		}
+		this.priorities.keySet().retainAll( retained.keySet() );
+		snapshot = new Snapshot( entries, priorities );
+		version.incrementAndGet();
+	}
+
+	/**
+	 * Immutable.
+	 */
+	private static class Snapshot
+	{
+		public Snapshot( Object[] entries, int[] priorities )
+		{
+			this.entries = entries;
+			this.priorities = priorities;
+		}
+
+		public final Object[] entries;
+
+		public final int[] priorities;
+
+		/**
+		 * Derived from the entries. Racing threads might derive it more than
+		 * once, which is harmless.
+		 */
+		public volatile Object derived;
+	}
+
+	private class ReadOnly extends AbstractCollection<E>
+	{
+		@Override
+		public int size()
+		{
+			return snapshot.entries.length;
+		}
+
+		@Override
+		public Iterator<E> iterator()
+		{
+			final Object[] entries = snapshot.entries;
+			return new Iterator<E>()
+			{
+				public boolean hasNext()
+				{
+					return index < entries.length;
+				}
+
+				@SuppressWarnings("unchecked")
+				public E next()
+				{
+					if( index >= entries.length )
+						throw new NoSuchElementException();
+					return (E) entries[index++];
+				}
+
+				public void remove()
+				{
+					throw new UnsupportedOperationException();
+				}
+
+				private int index;
+			};
+		}
+
+		public Registry<E> getRegistry()
+		{
+			return Registry.this;
+		}
+	}
+}
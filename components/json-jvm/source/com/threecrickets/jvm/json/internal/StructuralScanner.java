@@ -0,0 +1,248 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+
+package com.threecrickets.jvm.json.internal;
+
+import com.threecrickets.jvm.json.JsonSyntaxError;
+
+/**
+ * Scans strict JSON text for value boundaries without creating any values.
+ * Useful for cheap validation and for splitting text into values.
+ * 
+ * @author Tal Liron
+ */
+public class StructuralScanner
+{
+	//
+	// Static operations
+	//
+
+	/**
+	 * Skips whitespace.
+	 * 
+	 * @param text
+	 *        The text
+	 * @param index
+	 *        The start index
+	 * @param end
+	 *        The end index (exclusive)
+	 * @return The index of the first non-whitespace char, or the end index
+	 */
+	public static int skipWhitespace( CharSequence text, int index, int end )
+	{
+		while( ( index < end ) && isWhitespace( text.charAt( index ) ) )
+			index++;
+		return index;
+	}
+
+	/**
+	 * Skips a single JSON value (and any whitespace before it), validating its
+	 * syntax.
+	 * 
+	 * @param text
+	 *        The text
+	 * @param index
+	 *        The start index
+	 * @param end
+	 *        The end index (exclusive)
+	 * @return The index after the value
+	 * @throws JsonSyntaxError
+	 *         In case of a JSON syntax error
+	 */
+	public static int skipValue( CharSequence text, int index, int end ) throws JsonSyntaxError
+	{
+		index = skipWhitespace( text, index, end );
+		if( index == end )
+			throw error( "Missing value", text, index );
+
+		char c = text.charAt( index );
+		switch( c )
+		{
+			case '{':
+				index = skipWhitespace( text, index + 1, end );
+				if( ( index < end ) && ( text.charAt( index ) == '}' ) )
+					return index + 1;
+				for( ;; )
+				{
+					if( ( index == end ) || ( text.charAt( index ) != '"' ) )
+						throw error( "Expected a key", text, index );
+					index = skipWhitespace( text, skipString( text, index, end ), end );
+					if( ( index == end ) || ( text.charAt( index ) != ':' ) )
+						throw error( "Expected a ':' after a key", text, index );
+					index = skipWhitespace( text, skipValue( text, index + 1, end ), end );
+					if( index == end )
+						throw error( "Expected a ',' or '}'", text, index );
+					c = text.charAt( index );
+					if( c == '}' )
+						return index + 1;
+					if( c != ',' )
+						throw error( "Expected a ',' or '}'", text, index );
+					index = skipWhitespace( text, index + 1, end );
+				}
+
+			case '[':
+				index = skipWhitespace( text, index + 1, end );
+				if( ( index < end ) && ( text.charAt( index ) == ']' ) )
+					return index + 1;
+				for( ;; )
+				{
+					index = skipWhitespace( text, skipValue( text, index, end ), end );
+					if( index == end )
+						throw error( "Expected a ',' or ']'", text, index );
+					c = text.charAt( index );
+					if( c == ']' )
+						return index + 1;
+					if( c != ',' )
+						throw error( "Expected a ',' or ']'", text, index );
+					index++;
+				}
+
+			case '"':
+				return skipString( text, index, end );
+
+			case 't':
+				return skipWord( "true", text, index, end );
+
+			case 'f':
+				return skipWord( "false", text, index, end );
+
+			case 'n':
+				return skipWord( "null", text, index, end );
+
+			default:
+				if( ( c != '-' ) && !isDigit( c ) )
+					throw error( "Expected a value", text, index );
+				return skipNumber( text, index, end );
+		}
+	}
+
+	/**
+	 * Skips a string, validating its escapes.
+	 * 
+	 * @param text
+	 *        The text
+	 * @param index
+	 *        The index of the opening quote
+	 * @param end
+	 *        The end index (exclusive)
+	 * @return The index after the closing quote
+	 * @throws JsonSyntaxError
+	 *         In case of a JSON syntax error
+	 */
+	public static int skipString( CharSequence text, int index, int end ) throws JsonSyntaxError
+	{
+		for( index++; index < end; index++ )
+		{
+			char c = text.charAt( index );
+			if( c == '"' )
+				return index + 1;
+			else if( c == '\\' )
+			{
+				if( ++index == end )
+					break;
+				c = text.charAt( index );
+				if( c == 'u' )
+				{
+					if( index + 4 >= end )
+						break;
+					for( int i = 0; i < 4; i++ )
+						if( Character.digit( text.charAt( ++index ), 16 ) < 0 )
+							throw error( "Illegal escape", text, index );
+				}
+				else if( "\"\\/bfnrt".indexOf( c ) < 0 )
+					throw error( "Illegal escape", text, index );
+			}
+			else if( c < ' ' )
+				throw error( "Unterminated string", text, index );
+		}
+		throw error( "Unterminated string", text, index );
+	}
+
+	/**
+	 * Whether the char is JSON whitespace.
+	 * 
+	 * @param c
+	 *        The char
+	 * @return True if whitespace
+	 */
+	public static boolean isWhitespace( char c )
+	{
+		return ( c == ' ' ) || ( c == '\n' ) || ( c == '\r' ) || ( c == '\t' );
+	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	private static int skipWord( String word, CharSequence text, int index, int end ) throws JsonSyntaxError
+	{
+		int length = word.length();
+		if( index + length > end )
+			throw error( "Expected '" + word + "'", text, index );
+		for( int i = 0; i < length; i++ )
+			if( text.charAt( index + i ) != word.charAt( i ) )
+				throw error( "Expected '" + word + "'", text, index );
+		return index + length;
+	}
+
+	private static int skipNumber( CharSequence text, int index, int end ) throws JsonSyntaxError
+	{
+		int start = index;
+		if( ( index < end ) && ( text.charAt( index ) == '-' ) )
+			index++;
+		int digits = index;
+		while( ( index < end ) && isDigit( text.charAt( index ) ) )
+			index++;
+		if( ( index == digits ) || ( ( text.charAt( digits ) == '0' ) && ( index - digits > 1 ) ) )
+			throw error( "Illegal number", text, start );
+		if( ( index < end ) && ( text.charAt( index ) == '.' ) )
+		{
+			digits = ++index;
+			while( ( index < end ) && isDigit( text.charAt( index ) ) )
+				index++;
+			if( index == digits )
+				throw error( "Illegal number", text, start );
+		}
+		if( ( index < end ) && ( ( text.charAt( index ) == 'e' ) || ( text.charAt( index ) == 'E' ) ) )
+		{
+			index++;
+			if( ( index < end ) && ( ( text.charAt( index ) == '+' ) || ( text.charAt( index ) == '-' ) ) )
+				index++;
+			digits = index;
+			while( ( index < end ) && isDigit( text.charAt( index ) ) )
+				index++;
+			if( index == digits )
+				throw error( "Illegal number", text, start );
+		}
+		return index;
+	}
+
+	private static boolean isDigit( char c )
+	{
+		return ( c >= '0' ) && ( c <= '9' );
+	}
+
+	private static JsonSyntaxError error( String message, CharSequence text, int index )
+	{
+		int line = 1;
+		int column = 1;
+		for( int i = 0, length = Math.min( index, text.length() ); i < length; i++ )
+		{
+			if( text.charAt( i ) == '\n' )
+			{
+				line++;
+				column = 1;
+			}
+			else
+				column++;
+		}
+		return new JsonSyntaxError( message, line, column );
+	}
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+
+package com.threecrickets.jvm.json.internal;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collection;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import com.threecrickets.jvm.json.JsonImplementation;
+import com.threecrickets.jvm.json.ThreadBoundJsonImplementation;
+
+/**
+ * Utilities for tasks running on executors.
+ * 
+ * @author Tal Liron
+ */
+public class Tasks
+{
+	//
+	// Static operations
+	//
+
+	/**
+	 * Whether an implementation may only be used in the current thread, in
+	 * which case it must not be used in tasks.
+	 * 
+	 * @param implementation
+	 *        The implementation
+	 * @return True if thread-bound
+	 * @see ThreadBoundJsonImplementation
+	 */
+	public static boolean isThreadBound( JsonImplementation implementation )
+	{
+		return ( implementation instanceof ThreadBoundJsonImplementation ) && ( (ThreadBoundJsonImplementation) implementation ).isThreadBound();
+	}
+
+	/**
+	 * Waits for a task and returns its result, rethrowing whatever the task
+	 * threw.
+	 * 
+	 * @param <V>
+	 *        The result class
+	 * @param <E>
+	 *        The checked exception class
+	 * @param future
+	 *        The future
+	 * @param exceptionClass
+	 *        The checked exception class that the task might throw
+	 * @return The result
+	 * @throws E
+	 *         If the task threw it
+	 * @throws IOException
+	 *         If the task threw it, or an
+	 *         {@link InterruptedIOException} if interrupted while waiting or
+	 *         if the task was cancelled
+	 */
+	public static <V, E extends Exception> V get( Future<V> future, Class<E> exceptionClass ) throws E, IOException
+	{
+		try
+		{
+			return future.get();
+		}
+		catch( InterruptedException x )
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		catch( CancellationException x )
+		{
+			throw new InterruptedIOException( "Task was cancelled" );
+		}
+		catch( ExecutionException x )
+		{
+			Throwable cause = x.getCause();
+			if( exceptionClass.isInstance( cause ) )
+				throw exceptionClass.cast( cause );
+			else if( cause instanceof IOException )
+				throw (IOException) cause;
+			else if( cause instanceof RuntimeException )
+				throw (RuntimeException) cause;
+			else if( cause instanceof Error )
+				throw (Error) cause;
+			throw new RuntimeException( cause );
+		}
+	}
+
+	/**
+	 * Cancels tasks that have not yet started.
+	 * 
+	 * @param futures
+	 *        The futures
+	 */
+	public static void cancel( Collection<? extends Future<?>> futures )
+	{
+		for( Future<?> future : futures )
+			future.cancel( false );
+	}
+}
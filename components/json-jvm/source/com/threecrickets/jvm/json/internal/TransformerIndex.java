@@ -0,0 +1,239 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+
+package com.threecrickets.jvm.json.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.threecrickets.jvm.json.JsonImplementation;
+import com.threecrickets.jvm.json.JsonTransformer;
+import com.threecrickets.jvm.json.SelectiveJsonTransformer;
+
+/**
+ * Transformers grouped by the kinds of decoded values they react to, with an
+ * index of the marker keys declared by {@link SelectiveJsonTransformer}
+ * instances.
+ * <p>
+ * Each marker key is assigned a bit: as it builds an object, the decoder ORs
+ * the bits of its keys (see {@link #getMarker(String)}), and object
+ * transformers with marker keys are tried only if one of their bits is set.
+ * If there are more than 64 distinct marker keys then bits are shared, which
+ * can only cause transformers to be tried unnecessarily.
+ * <p>
+ * Immutable, and cached per snapshot of the implementation's transformers.
+ * 
+ * @author Tal Liron
+ */
+public class TransformerIndex
+{
+	//
+	// Static operations
+	//
+
+	/**
+	 * The index for an implementation's current transformers.
+	 * 
+	 * @param implementation
+	 *        The implementation
+	 * @return The index
+	 */
+	public static TransformerIndex get( JsonImplementation implementation )
+	{
+		return Registry.derive( implementation.getTransformers(), DERIVATION );
+	}
+
+	//
+	// Attributes
+	//
+
+	/**
+	 * Whether any object transformers declare marker keys. If not, there is
+	 * no need to call {@link #getMarker(String)}.
+	 * 
+	 * @return True if there are marker keys
+	 */
+	public boolean hasMarkers()
+	{
+		return markers != null;
+	}
+
+	/**
+	 * The marker bit for a key.
+	 * 
+	 * @param key
+	 *        The key
+	 * @return The bit, or 0 if the key is not a marker key
+	 */
+	public long getMarker( String key )
+	{
+		if( markers == null )
+			return 0;
+		Long marker = markers.get( key );
+		return marker != null ? marker.longValue() : 0;
+	}
+
+	//
+	// Operations
+	//
+
+	/**
+	 * Transforms a decoded object.
+	 * 
+	 * @param object
+	 *        The object
+	 * @param markers
+	 *        The OR of the marker bits of the object's keys
+	 * @param implementation
+	 *        The implementation
+	 * @return The transformed object, or the object itself if not
+	 *         transformed
+	 */
+	public Object transformObject( Object object, long markers, JsonImplementation implementation )
+	{
+		for( int i = 0, length = objectTransformers.length; i < length; i++ )
+		{
+			long mask = objectMasks[i];
+			if( ( mask == 0 ) || ( ( mask & markers ) != 0 ) )
+			{
+				Object r = objectTransformers[i].transform( object, implementation );
+				if( r != null )
+					return r;
+			}
+		}
+		return object;
+	}
+
+	/**
+	 * Transforms a decoded array.
+	 * 
+	 * @param array
+	 *        The array
+	 * @param implementation
+	 *        The implementation
+	 * @return The transformed array, or the array itself if not transformed
+	 */
+	public Object transformArray( Object array, JsonImplementation implementation )
+	{
+		return transform( array, arrayTransformers, implementation );
+	}
+
+	/**
+	 * Transforms a decoded string, number, boolean or null.
+	 * 
+	 * @param value
+	 *        The value
+	 * @param implementation
+	 *        The implementation
+	 * @return The transformed value, or the value itself if not transformed
+	 */
+	public Object transformScalar( Object value, JsonImplementation implementation )
+	{
+		return transform( value, scalarTransformers, implementation );
+	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	private static final Registry.Derivation<JsonTransformer, TransformerIndex> DERIVATION = new Registry.Derivation<JsonTransformer, TransformerIndex>()
+	{
+		public TransformerIndex derive( Collection<JsonTransformer> transformers )
+		{
+			return new TransformerIndex( transformers );
+		}
+	};
+
+	private static final JsonTransformer[] EMPTY = new JsonTransformer[0];
+
+	private final JsonTransformer[] objectTransformers;
+
+	/**
+	 * For each object transformer, the OR of the bits of its marker keys, or
+	 * 0 if it is tried on all objects.
+	 */
+	private final long[] objectMasks;
+
+	private final JsonTransformer[] arrayTransformers;
+
+	private final JsonTransformer[] scalarTransformers;
+
+	private final Map<String, Long> markers;
+
+	private TransformerIndex( Collection<JsonTransformer> transformers )
+	{
+		List<JsonTransformer> objectTransformers = new ArrayList<JsonTransformer>();
+		List<Long> objectMasks = new ArrayList<Long>();
+		List<JsonTransformer> arrayTransformers = new ArrayList<JsonTransformer>();
+		List<JsonTransformer> scalarTransformers = new ArrayList<JsonTransformer>();
+		Map<String, Long> markers = new HashMap<String, Long>();
+
+		for( JsonTransformer transformer : transformers )
+		{
+			int kinds = SelectiveJsonTransformer.OBJECTS | SelectiveJsonTransformer.ARRAYS | SelectiveJsonTransformer.SCALARS;
+			long mask = 0;
+			if( transformer instanceof SelectiveJsonTransformer )
+			{
+				SelectiveJsonTransformer selective = (SelectiveJsonTransformer) transformer;
+				kinds = selective.getKinds();
+				Collection<String> markerKeys = selective.getMarkerKeys();
+				if( ( ( kinds & SelectiveJsonTransformer.OBJECTS ) != 0 ) && ( markerKeys != null ) )
+				{
+					for( String key : markerKeys )
+					{
+						Long marker = markers.get( key );
+						if( marker == null )
+						{
+							marker = Long.valueOf( 1L << ( markers.size() % 64 ) );
+							markers.put( key, marker );
+						}
+						mask |= marker.longValue();
+					}
+
+					// No marker keys means no objects
+					if( mask == 0 )
+						kinds &= ~SelectiveJsonTransformer.OBJECTS;
+				}
+			}
+
+			if( ( kinds & SelectiveJsonTransformer.OBJECTS ) != 0 )
+			{
+				objectTransformers.add( transformer );
+				objectMasks.add( Long.valueOf( mask ) );
+			}
+			if( ( kinds & SelectiveJsonTransformer.ARRAYS ) != 0 )
+				arrayTransformers.add( transformer );
+			if( ( kinds & SelectiveJsonTransformer.SCALARS ) != 0 )
+				scalarTransformers.add( transformer );
+		}
+
+		this.objectTransformers = objectTransformers.toArray( EMPTY );
+		this.objectMasks = new long[objectMasks.size()];
+		for( int i = 0, length = this.objectMasks.length; i < length; i++ )
+			this.objectMasks[i] = objectMasks.get( i ).longValue();
+		this.arrayTransformers = arrayTransformers.toArray( EMPTY );
+		this.scalarTransformers = scalarTransformers.toArray( EMPTY );
+		this.markers = markers.isEmpty() ? null : markers;
+	}
+
+	private static Object transform( Object value, JsonTransformer[] transformers, JsonImplementation implementation )
+	{
+		for( int i = 0, length = transformers.length; i < length; i++ )
+		{
+			Object r = transformers[i].transform( value, implementation );
+			if( r != null )
+				return r;
+		}
+		return value;
+	}
+}
@@ -14,8 +14,10 @@ package com.threecrickets.jvm.json.nashorn;
 import java.util.Collection;
 
 import com.threecrickets.jvm.json.BaseJsonImplementation;
+import com.threecrickets.jvm.json.DenseArrayJsonImplementation;
 import com.threecrickets.jvm.json.JsonEncoder;
 import com.threecrickets.jvm.json.JsonTransformer;
+import com.threecrickets.jvm.json.ThreadBoundJsonImplementation;
 import com.threecrickets.jvm.json.generic.GenericJsonImplementation;
 
 import jdk.nashorn.internal.objects.Global;
@@ -32,7 +34,7 @@ import jdk.nashorn.internal.runtime.ScriptObject;
  * 
  * @author Tal Liron
  */
-public class NashornJsonImplementation extends BaseJsonImplementation
+public class NashornJsonImplementation extends BaseJsonImplementation implements DenseArrayJsonImplementation, ThreadBoundJsonImplementation
 {
 	//
 	// Static operations
@@ -54,6 +56,51 @@ public class NashornJsonImplementation extends BaseJsonImplementation
 		transformers.add( new ScriptObjectMirrorTransformer() );
 	}
 
+	//
+	// Attributes
+	//
+
+	/**
+	 * Whether strings and numbers are created as primitive JavaScript values.
+	 * 
+	 * @return True if creating primitives
+	 * @see #setPrimitives(boolean)
+	 */
+	public boolean isPrimitives()
+	{
+		return primitives;
+	}
+
+	/**
+	 * Whether strings and numbers are created as primitive JavaScript values
+	 * (java.lang.String, Integer and Double) rather than as NativeString and
+	 * NativeNumber wrapper objects. Primitives are smaller and faster to
+	 * access from scripts. This applies both to decoded values and to the
+	 * result of {@link com.threecrickets.jvm.json.Json#to(Object)}.
+	 * <p>
+	 * Defaults to false, for compatibility.
+	 * 
+	 * @param primitives
+	 *        True to create primitives
+	 * @see #isPrimitives()
+	 */
+	public void setPrimitives( boolean primitives )
+	{
+		this.primitives = primitives;
+	}
+
+	//
+	// ThreadBoundJsonImplementation
+	//
+
+	/**
+	 * Always true, because values are created in the current Nashorn global.
+	 */
+	public boolean isThreadBound()
+	{
+		return true;
+	}
+
 	//
 	// JsonImplementation
 	//
@@ -85,6 +132,36 @@ public class NashornJsonImplementation extends BaseJsonImplementation
 		return NativeArray.construct( true, null, length );
 	}
 
+	public Object createArray( Object[] elements )
+	{
+		// Arrays of numbers are stored in typed array data
+		boolean integers = true;
+		for( Object element : elements )
+		{
+			if( element instanceof Integer )
+				continue;
+			integers = false;
+			if( !( element instanceof Double ) )
+				return Global.allocate( elements );
+		}
+
+		int length = elements.length;
+		if( integers )
+		{
+			int[] array = new int[length];
+			for( int i = 0; i < length; i++ )
+				array[i] = ( (Integer) elements[i] ).intValue();
+			return Global.allocate( array );
+		}
+		else
+		{
+			double[] array = new double[length];
+			for( int i = 0; i < length; i++ )
+				array[i] = ( (Number) elements[i] ).doubleValue();
+			return Global.allocate( array );
+		}
+	}
+
 	public void setInArray( Object object, int index, Object value )
 	{
 		( (NativeArray) object ).set( index, value, 0 );
@@ -92,21 +169,46 @@ public class NashornJsonImplementation extends BaseJsonImplementation
 
 	public Object createString( String value )
 	{
+		if( primitives )
+			return value;
 		return NativeString.constructor( true, null, value );
 	}
 
 	public Object createDouble( double value )
 	{
+		if( primitives )
+			return Double.valueOf( value );
 		return NativeNumber.constructor( true, null, value );
 	}
 
 	public Object createInteger( int value )
 	{
+		if( primitives )
+			return Integer.valueOf( value );
 		return Global.toObject( value );
 	}
 
 	public Object createLong( long value )
 	{
+		if( primitives )
+			return toPrimitive( value );
 		return Global.toObject( value );
 	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	private volatile boolean primitives;
+
+	/**
+	 * Numbers that fit in an int are represented as such, otherwise as
+	 * doubles.
+	 */
+	static Object toPrimitive( long value )
+	{
+		int i = (int) value;
+		if( i == value )
+			return Integer.valueOf( i );
+		return Double.valueOf( value );
+	}
 }
@@ -15,9 +15,11 @@ import java.io.IOException;
 
 import com.threecrickets.jvm.json.JsonContext;
 import com.threecrickets.jvm.json.JsonEncoder;
+import com.threecrickets.jvm.json.generic.NumberEncoder;
 
 import jdk.nashorn.internal.objects.NativeArray;
 import jdk.nashorn.internal.runtime.arrays.ArrayData;
+import jdk.nashorn.internal.runtime.arrays.ContinuousArrayData;
 
 /**
  * A JSON encoder for Nashorn's {@link NativeArray}.
@@ -46,15 +48,43 @@ public class NativeArrayEncoder implements JsonEncoder
 		{
 			context.newline();
 
-			for( int i = 0; i < length; i++ )
+			// Dense arrays of ints or doubles are written directly, without
+			// boxing and encoder lookups for each element
+			Class<?> elementType = data instanceof ContinuousArrayData ? ( (ContinuousArrayData) data ).getElementType() : Object.class;
+			if( ( elementType == int.class ) && encodesNumbers( context, INTEGER ) )
 			{
-				Object value = data.getObject( i );
+				for( int i = 0; i < length; i++ )
+				{
+					context.indentNested();
+					context.number( (long) data.getInt( i ) );
 
-				context.indentNested();
-				context.nest().encode( value );
+					if( i < length - 1 )
+						context.comma();
+				}
+			}
+			else if( ( elementType == double.class ) && encodesNumbers( context, DOUBLE ) )
+			{
+				for( int i = 0; i < length; i++ )
+				{
+					context.indentNested();
+					context.number( data.getDouble( i ) );
+
+					if( i < length - 1 )
+						context.comma();
+				}
+			}
+			else
+			{
+				for( int i = 0; i < length; i++ )
+				{
+					Object value = data.getObject( i );
+
+					context.indentNested();
+					context.nest().encode( value );
 
-				if( i < length - 1 )
-					context.comma();
+					if( i < length - 1 )
+						context.comma();
+				}
 			}
 
 			context.newline();
@@ -63,4 +93,24 @@ public class NativeArrayEncoder implements JsonEncoder
 
 		context.out.append( ']' );
 	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	private static final Integer INTEGER = Integer.valueOf( 0 );
+
+	private static final Double DOUBLE = Double.valueOf( 0.0 );
+
+	/**
+	 * Whether numbers like the sample would be encoded by the
+	 * {@link NumberEncoder}, which we can then bypass. (Another encoder could
+	 * have been added to take precedence.)
+	 */
+	private static boolean encodesNumbers( JsonContext context, Number sample )
+	{
+		for( JsonEncoder encoder : context.implementation.getEncoders() )
+			if( encoder.canEncode( sample, context ) )
+				return encoder instanceof NumberEncoder;
+		return false;
+	}
 }
@@ -15,7 +15,6 @@ import java.io.IOException;
 
 import com.threecrickets.jvm.json.JsonContext;
 import com.threecrickets.jvm.json.JsonEncoder;
-import com.threecrickets.jvm.json.util.JsonUtil;
 
 import jdk.nashorn.internal.objects.NativeNumber;
 
@@ -37,6 +36,6 @@ public class NativeNumberEncoder implements JsonEncoder
 
 	public void encode( Object object, JsonContext context ) throws IOException
 	{
-		context.out.append( JsonUtil.numberToString( ( (NativeNumber) object ).getValue() ) );
+		context.number( ( (NativeNumber) object ).getValue() );
 	}
 }
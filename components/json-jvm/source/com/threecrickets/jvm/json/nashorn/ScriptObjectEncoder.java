@@ -52,7 +52,7 @@ public class ScriptObjectEncoder implements JsonEncoder
 				Object value = scriptObject.get( key );
 
 				context.indentNested();
-				context.quoted( key );
+				context.quotedKey( key );
 				context.colon();
 				context.nest().encode( value );
 
@@ -92,7 +92,7 @@ public class ScriptObjectMirrorEncoder implements JsonEncoder
 					Object value = scriptObjectMirror.get( key );
 
 					context.indentNested();
-					context.quoted( key );
+					context.quotedKey( key );
 					context.colon();
 					context.nest().encode( value );
 
@@ -11,8 +11,11 @@
 
 package com.threecrickets.jvm.json.nashorn;
 
+import java.util.Collection;
+
 import com.threecrickets.jvm.json.JsonImplementation;
 import com.threecrickets.jvm.json.JsonTransformer;
+import com.threecrickets.jvm.json.SelectiveJsonTransformer;
 
 import jdk.nashorn.api.scripting.ScriptObjectMirror;
 import jdk.nashorn.internal.runtime.Context;
@@ -23,12 +26,26 @@ import jdk.nashorn.internal.runtime.Context;
  * <p>
  * ScriptObjectMirrors should not normally result from JSON decoding, because we
  * construct our ScriptObjects directly, however the transformer is provided for
- * the sake of completion.
+ * the sake of completion. Accordingly, it is never tried by the decoder.
  * 
  * @author Tal Liron
  */
-public class ScriptObjectMirrorTransformer implements JsonTransformer
+public class ScriptObjectMirrorTransformer implements SelectiveJsonTransformer
 {
+	//
+	// SelectiveJsonTransformer
+	//
+
+	public int getKinds()
+	{
+		return 0;
+	}
+
+	public Collection<String> getMarkerKeys()
+	{
+		return null;
+	}
+
 	//
 	// JsonTransformer
 	//
@@ -14,6 +14,8 @@ package com.threecrickets.jvm.json.rhino;
 import java.io.IOException;
 
 import org.mozilla.javascript.NativeArray;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.Undefined;
 
 import com.threecrickets.jvm.json.JsonContext;
 import com.threecrickets.jvm.json.JsonEncoder;
@@ -40,14 +42,19 @@ public class NativeArrayEncoder implements JsonEncoder
 
 		context.out.append( '[' );
 
-		int length = (int) nativeArray.size();
+		int length = (int) nativeArray.getLength();
 		if( length > 0 )
 		{
 			context.newline();
 
 			for( int i = 0; i < length; i++ )
 			{
-				Object value = nativeArray.get( i );
+				// For dense arrays this reads the backing array directly,
+				// unlike List.get, which also unwraps values (our encoders
+				// handle wrappers anyway)
+				Object value = nativeArray.get( i, nativeArray );
+				if( ( value == Scriptable.NOT_FOUND ) || ( value == Undefined.instance ) )
+					value = null;
 
 				context.indentNested();
 				context.nest().encode( value );
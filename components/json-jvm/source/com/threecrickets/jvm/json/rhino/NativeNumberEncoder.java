@@ -17,7 +17,6 @@ import org.mozilla.javascript.Scriptable;
 
 import com.threecrickets.jvm.json.JsonContext;
 import com.threecrickets.jvm.json.JsonEncoder;
-import com.threecrickets.jvm.json.util.JsonUtil;
 
 /**
  * A JSON encoder for Rhino's NativeNumber (the class is private in Rhino).
@@ -39,6 +38,6 @@ public class NativeNumberEncoder implements JsonEncoder
 	{
 		Scriptable nativeNumber = (Scriptable) object;
 		Double number = (Double) nativeNumber.getDefaultValue( Double.class );
-		context.out.append( JsonUtil.numberToString( number ) );
+		context.number( number.doubleValue() );
 	}
 }
@@ -0,0 +1,249 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+
+package com.threecrickets.jvm.json.rhino;
+
+import java.io.Reader;
+import java.util.Collection;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.NativeArray;
+import org.mozilla.javascript.NativeObject;
+import org.mozilla.javascript.ScriptRuntime;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+
+import com.threecrickets.jvm.json.DenseArrayJsonImplementation;
+import com.threecrickets.jvm.json.JsonContext;
+import com.threecrickets.jvm.json.JsonDecoder;
+import com.threecrickets.jvm.json.JsonEncoder;
+import com.threecrickets.jvm.json.JsonTransformer;
+import com.threecrickets.jvm.json.ThreadBoundJsonImplementation;
+
+/**
+ * Creates Rhino values for a single decoding. The current {@link Context},
+ * its top call scope, the Object and Array prototypes and the String and
+ * Number constructors are resolved once, when the session is created, instead
+ * of for every created value. So is
+ * {@link RhinoJsonImplementation#isPrimitives()}. Everything else is delegated
+ * to the {@link RhinoJsonImplementation}.
+ * <p>
+ * A session must only be used in the thread that created it, while the
+ * context is still current. {@link RhinoJsonImplementation#createDecoder}
+ * creates a session for every decoder.
+ * 
+ * @author Tal Liron
+ */
+public class RhinoDecodeSession implements DenseArrayJsonImplementation, ThreadBoundJsonImplementation
+{
+	//
+	// Construction
+	//
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param implementation
+	 *        The implementation
+	 * @throws IllegalStateException
+	 *         If there is no current Rhino context
+	 */
+	public RhinoDecodeSession( RhinoJsonImplementation implementation )
+	{
+		this.implementation = implementation;
+		primitives = implementation.isPrimitives();
+		context = Context.getCurrentContext();
+		if( context == null )
+			throw new IllegalStateException( "No current Rhino context" );
+		scope = ScriptRuntime.getTopCallScope( context );
+		objectPrototype = ScriptableObject.getObjectPrototype( scope );
+		arrayPrototype = ScriptableObject.getArrayPrototype( scope );
+
+		// NativeString and NativeNumber are private in Rhino, so we create
+		// them indirectly via their constructors
+		stringConstructor = (Function) ScriptableObject.getProperty( scope, "String" );
+		numberConstructor = (Function) ScriptableObject.getProperty( scope, "Number" );
+	}
+
+	//
+	// Attributes
+	//
+
+	/**
+	 * The context.
+	 * 
+	 * @return The context
+	 */
+	public Context getContext()
+	{
+		return context;
+	}
+
+	/**
+	 * The top call scope.
+	 * 
+	 * @return The scope
+	 */
+	public Scriptable getScope()
+	{
+		return scope;
+	}
+
+	//
+	// ThreadBoundJsonImplementation
+	//
+
+	/**
+	 * Always true, because values are created in the current Rhino context.
+	 */
+	public boolean isThreadBound()
+	{
+		return true;
+	}
+
+	//
+	// JsonImplementation
+	//
+
+	public void initialize()
+	{
+	}
+
+	public String getName()
+	{
+		return implementation.getName();
+	}
+
+	public int getPriority()
+	{
+		return implementation.getPriority();
+	}
+
+	public JsonContext createContext( Appendable out, boolean expand, boolean allowCode, int depth )
+	{
+		return implementation.createContext( out, expand, allowCode, depth );
+	}
+
+	public JsonDecoder createDecoder( Reader reader, boolean allowTransform )
+	{
+		return implementation.createDecoder( reader, allowTransform );
+	}
+
+	public Collection<JsonEncoder> getEncoders()
+	{
+		return implementation.getEncoders();
+	}
+
+	public JsonEncoder getFallbackEncoder()
+	{
+		return implementation.getFallbackEncoder();
+	}
+
+	public Collection<JsonTransformer> getTransformers()
+	{
+		return implementation.getTransformers();
+	}
+
+	public Object createObject()
+	{
+		NativeObject object = new NativeObject();
+		object.setPrototype( objectPrototype );
+		object.setParentScope( scope );
+		return object;
+	}
+
+	public void putInObject( Object object, String key, Object value )
+	{
+		implementation.putInObject( object, key, value );
+	}
+
+	public Object createArray( int length )
+	{
+		NativeArray array = new NativeArray( length );
+		array.setPrototype( arrayPrototype );
+		array.setParentScope( scope );
+		return array;
+	}
+
+	public Object createArray( Object[] elements )
+	{
+		// The array is dense, and uses the elements as is
+		NativeArray array = new NativeArray( elements );
+		array.setPrototype( arrayPrototype );
+		array.setParentScope( scope );
+		return array;
+	}
+
+	public void setInArray( Object object, int index, Object value )
+	{
+		implementation.setInArray( object, index, value );
+	}
+
+	public Object createString( String value )
+	{
+		if( primitives )
+			return value;
+		return stringConstructor.construct( context, scope, new Object[]
+		{
+			value
+		} );
+	}
+
+	public Object createDouble( double value )
+	{
+		if( primitives )
+			return Double.valueOf( value );
+		return numberConstructor.construct( context, scope, new Object[]
+		{
+			value
+		} );
+	}
+
+	public Object createInteger( int value )
+	{
+		if( primitives )
+			return Integer.valueOf( value );
+		return numberConstructor.construct( context, scope, new Object[]
+		{
+			value
+		} );
+	}
+
+	public Object createLong( long value )
+	{
+		if( primitives )
+			return RhinoJsonImplementation.toPrimitive( value );
+		return numberConstructor.construct( context, scope, new Object[]
+		{
+			value
+		} );
+	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	private final RhinoJsonImplementation implementation;
+
+	private final boolean primitives;
+
+	private final Context context;
+
+	private final Scriptable scope;
+
+	private final Scriptable objectPrototype;
+
+	private final Scriptable arrayPrototype;
+
+	private final Function stringConstructor;
+
+	private final Function numberConstructor;
+}
@@ -11,6 +11,7 @@
 
 package com.threecrickets.jvm.json.rhino;
 
+import java.io.Reader;
 import java.util.Collection;
 
 import org.mozilla.javascript.Context;
@@ -20,8 +21,11 @@ import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
 
 import com.threecrickets.jvm.json.BaseJsonImplementation;
+import com.threecrickets.jvm.json.DenseArrayJsonImplementation;
+import com.threecrickets.jvm.json.JsonDecoder;
 import com.threecrickets.jvm.json.JsonEncoder;
 import com.threecrickets.jvm.json.JsonTransformer;
+import com.threecrickets.jvm.json.ThreadBoundJsonImplementation;
 import com.threecrickets.jvm.json.generic.GenericJsonImplementation;
 
 /**
@@ -32,7 +36,7 @@ import com.threecrickets.jvm.json.generic.GenericJsonImplementation;
  * 
  * @author Tal Liron
  */
-public class RhinoJsonImplementation extends BaseJsonImplementation
+public class RhinoJsonImplementation extends BaseJsonImplementation implements DenseArrayJsonImplementation, ThreadBoundJsonImplementation
 {
 	//
 	// Static operations
@@ -55,6 +59,51 @@ public class RhinoJsonImplementation extends BaseJsonImplementation
 		transformers.add( new WrapperTransformer() );
 	}
 
+	//
+	// Attributes
+	//
+
+	/**
+	 * Whether strings and numbers are created as primitive JavaScript values.
+	 * 
+	 * @return True if creating primitives
+	 * @see #setPrimitives(boolean)
+	 */
+	public boolean isPrimitives()
+	{
+		return primitives;
+	}
+
+	/**
+	 * Whether strings and numbers are created as primitive JavaScript values
+	 * (java.lang.String, Integer and Double) rather than as String and Number
+	 * wrapper objects. Primitives are smaller and faster to access from
+	 * scripts. This applies both to decoded values and to the result of
+	 * {@link com.threecrickets.jvm.json.Json#to(Object)}.
+	 * <p>
+	 * Defaults to false, for compatibility.
+	 * 
+	 * @param primitives
+	 *        True to create primitives
+	 * @see #isPrimitives()
+	 */
+	public void setPrimitives( boolean primitives )
+	{
+		this.primitives = primitives;
+	}
+
+	//
+	// ThreadBoundJsonImplementation
+	//
+
+	/**
+	 * Always true, because values are created in the current Rhino context.
+	 */
+	public boolean isThreadBound()
+	{
+		return true;
+	}
+
 	//
 	// JsonImplementation
 	//
@@ -71,6 +120,16 @@ public class RhinoJsonImplementation extends BaseJsonImplementation
 		return "Rhino";
 	}
 
+	/**
+	 * The decoder creates its values via a {@link RhinoDecodeSession}, and so
+	 * must be used in the current thread.
+	 */
+	@Override
+	public JsonDecoder createDecoder( Reader reader, boolean allowTransform )
+	{
+		return new JsonDecoder( new RhinoDecodeSession( this ), reader, allowTransform );
+	}
+
 	public Object createObject()
 	{
 		Context context = Context.getCurrentContext();
@@ -91,6 +150,13 @@ public class RhinoJsonImplementation extends BaseJsonImplementation
 		return context.newArray( scope, length );
 	}
 
+	public Object createArray( Object[] elements )
+	{
+		Context context = Context.getCurrentContext();
+		Scriptable scope = ScriptRuntime.getTopCallScope( context );
+		return context.newArray( scope, elements );
+	}
+
 	public void setInArray( Object object, int index, Object value )
 	{
 		Scriptable scriptable = (Scriptable) object;
@@ -99,6 +165,9 @@ public class RhinoJsonImplementation extends BaseJsonImplementation
 
 	public Object createString( String value )
 	{
+		if( primitives )
+			return value;
+
 		// NativeString is private in Rhino, so we create it indirectly
 		Context context = Context.getCurrentContext();
 		Scriptable scope = ScriptRuntime.getTopCallScope( context );
@@ -110,6 +179,9 @@ public class RhinoJsonImplementation extends BaseJsonImplementation
 
 	public Object createDouble( double value )
 	{
+		if( primitives )
+			return Double.valueOf( value );
+
 		// NativeNumber is private in Rhino, so we create it indirectly
 		Context context = Context.getCurrentContext();
 		Scriptable scope = ScriptRuntime.getTopCallScope( context );
@@ -121,6 +193,9 @@ public class RhinoJsonImplementation extends BaseJsonImplementation
 
 	public Object createInteger( int value )
 	{
+		if( primitives )
+			return Integer.valueOf( value );
+
 		// NativeNumber is private in Rhino, so we create it indirectly
 		Context context = Context.getCurrentContext();
 		Scriptable scope = ScriptRuntime.getTopCallScope( context );
@@ -132,6 +207,9 @@ public class RhinoJsonImplementation extends BaseJsonImplementation
 
 	public Object createLong( long value )
 	{
+		if( primitives )
+			return toPrimitive( value );
+
 		// NativeNumber is private in Rhino, so we create it indirectly
 		Context context = Context.getCurrentContext();
 		Scriptable scope = ScriptRuntime.getTopCallScope( context );
@@ -140,4 +218,21 @@ public class RhinoJsonImplementation extends BaseJsonImplementation
 			value
 		} );
 	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	private volatile boolean primitives;
+
+	/**
+	 * Numbers that fit in an int are represented as such, otherwise as
+	 * doubles.
+	 */
+	static Object toPrimitive( long value )
+	{
+		int i = (int) value;
+		if( i == value )
+			return Integer.valueOf( i );
+		return Double.valueOf( value );
+	}
 }
@@ -48,11 +48,13 @@ public class ScriptableEncoder implements JsonEncoder
 
 			for( int i = 0; i < length; i++ )
 			{
-				String key = keys[i].toString();
-				Object value = scriptable.get( key, scriptable );
+				// Integer ids must be read by index
+				Object id = keys[i];
+				String key = id.toString();
+				Object value = id instanceof Integer ? scriptable.get( ( (Integer) id ).intValue(), scriptable ) : scriptable.get( key, scriptable );
 
 				context.indentNested();
-				context.quoted( key );
+				context.quotedKey( key );
 				context.colon();
 				context.nest().encode( value );
 
@@ -11,10 +11,13 @@
 
 package com.threecrickets.jvm.json.rhino;
 
+import java.util.Collection;
+
 import org.mozilla.javascript.Wrapper;
 
 import com.threecrickets.jvm.json.JsonImplementation;
 import com.threecrickets.jvm.json.JsonTransformer;
+import com.threecrickets.jvm.json.SelectiveJsonTransformer;
 
 /**
  * Transformer for a Rhino's {@link Wrapper}. Unwraps and delegates to the
@@ -22,12 +25,26 @@ import com.threecrickets.jvm.json.JsonTransformer;
  * <p>
  * Wrappers should not normally result from JSON decoding, because we construct
  * our ScriptableObjects directly, however the transformer is provided for the
- * sake of completion.
+ * sake of completion. Accordingly, it is never tried by the decoder.
  * 
  * @author Tal Liron
  */
-public class WrapperTransformer implements JsonTransformer
+public class WrapperTransformer implements SelectiveJsonTransformer
 {
+	//
+	// SelectiveJsonTransformer
+	//
+
+	public int getKinds()
+	{
+		return 0;
+	}
+
+	public Collection<String> getMarkerKeys()
+	{
+		return null;
+	}
+
 	//
 	// JsonTransformer
 	//
@@ -24,6 +24,11 @@ import org.mozilla.javascript.regexp.NativeRegExp;
 
 /**
  * Conversion between native Rhino values and JVM equivalents.
+ * <p>
+ * Each call looks up the current context and its top call scope. When
+ * creating many values at once, prefer a
+ * {@link com.threecrickets.jvm.json.rhino.RhinoDecodeSession}, which does so
+ * only once.
  * 
  * @author Tal Liron
  */
@@ -0,0 +1,114 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+package com.threecrickets.jvm.json.util;
+
+import com.threecrickets.jvm.json.JsonDecoder;
+import com.threecrickets.jvm.json.internal.Base64;
+
+/**
+ * A string that is valid Base64. It behaves like a regular
+ * {@link CharSequence}, but can also be decoded into bytes on demand. The
+ * decoded bytes are cached.
+ * 
+ * @author Tal Liron
+ * @see JsonDecoder#setBase64Strings(boolean)
+ */
+public class Base64String implements CharSequence
+{
+	//
+	// Static operations
+	//
+
+	/**
+	 * Whether the text is valid padded Base64.
+	 * 
+	 * @param text
+	 *        The text
+	 * @return True if valid
+	 */
+	public static boolean isBase64( CharSequence text )
+	{
+		return Base64.isBase64( text );
+	}
+
+	//
+	// Construction
+	//
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param value
+	 *        The Base64 text
+	 */
+	public Base64String( String value )
+	{
+		this.value = value;
+	}
+
+	//
+	// Attributes
+	//
+
+	/**
+	 * The Base64 text.
+	 */
+	public final String value;
+
+	/**
+	 * The decoded bytes. Decoding happens on the first call.
+	 * 
+	 * @return The bytes (do not modify)
+	 * @throws IllegalArgumentException
+	 *         If the text is not valid Base64
+	 */
+	public byte[] getBytes()
+	{
+		byte[] bytes = this.bytes;
+		if( bytes == null )
+			this.bytes = bytes = Base64.decode( value );
+		return bytes;
+	}
+
+	//
+	// CharSequence
+	//
+
+	public int length()
+	{
+		return value.length();
+	}
+
+	public char charAt( int index )
+	{
+		return value.charAt( index );
+	}
+
+	public CharSequence subSequence( int start, int end )
+	{
+		return value.subSequence( start, end );
+	}
+
+	//
+	// Object
+	//
+
+	@Override
+	public String toString()
+	{
+		return value;
+	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	private volatile byte[] bytes;
+}
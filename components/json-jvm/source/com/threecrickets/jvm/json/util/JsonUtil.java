@@ -14,8 +14,8 @@ package com.threecrickets.jvm.json.util;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import com.threecrickets.jvm.json.internal.DoubleToDecimal;
 import com.threecrickets.jvm.json.internal.DtoA;
-import com.threecrickets.jvm.json.internal.FastDtoA;
 
 /**
  * JavaScript formatting utilities.
@@ -83,14 +83,8 @@ public class JsonUtil
 			return DtoA.JS_dtobasestr( radix, number );
 		else
 		{
-			// V8 FastDtoA can't convert all numbers, so try it first but fall
-			// back to old DtoA in case it fails
-			String result = FastDtoA.numberToString( number );
-			if( result != null )
-				return result;
-			StringBuilder buffer = new StringBuilder();
-			DtoA.JS_dtostr( buffer, DtoA.DTOSTR_STANDARD, 0, number );
-			return buffer.toString();
+			char[] buffer = new char[DoubleToDecimal.MAX_LENGTH];
+			return new String( buffer, 0, DoubleToDecimal.toChars( number, buffer, 0 ) );
 		}
 	}
 
@@ -0,0 +1,140 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+package com.threecrickets.jvm.json.util;
+
+import java.nio.charset.Charset;
+
+/**
+ * A string that has already been escaped and quoted for JSON, in char form
+ * and (on demand) UTF-8 byte form, so that it can be written with a single
+ * bulk copy.
+ * Useful for keys and values that are written repeatedly.
+ * <p>
+ * Instances are immutable and thread-safe.
+ * 
+ * @author Tal Liron
+ */
+public class PreEncodedString
+{
+	//
+	// Static operations
+	//
+
+	/**
+	 * Gets a pre-encoded string from a bounded, shared cache, creating it if
+	 * necessary. Intended for the relatively small set of keys that recur in
+	 * most JSON documents. Strings longer than {@link #MAX_CACHED_LENGTH} are
+	 * not cached.
+	 * <p>
+	 * The cache is direct-mapped by hash code, so lookups are lock-free and
+	 * a colliding string simply replaces the previous entry.
+	 * 
+	 * @param string
+	 *        The string
+	 * @return The pre-encoded string
+	 */
+	public static PreEncodedString cached( String string )
+	{
+		if( string.length() > MAX_CACHED_LENGTH )
+			return new PreEncodedString( string );
+
+		int index = string.hashCode() & ( CACHE_SIZE - 1 );
+		PreEncodedString preEncoded = cache[index];
+		if( ( preEncoded == null ) || !preEncoded.value.equals( string ) )
+			cache[index] = preEncoded = new PreEncodedString( string );
+		return preEncoded;
+	}
+
+	//
+	// Static attributes
+	//
+
+	/**
+	 * The maximum length of strings stored in the shared cache.
+	 */
+	public static final int MAX_CACHED_LENGTH = 128;
+
+	//
+	// Construction
+	//
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param value
+	 *        The unescaped string
+	 */
+	public PreEncodedString( String value )
+	{
+		this.value = value;
+		chars = ( "\"" + JsonUtil.escapeCharSequence( value ) + "\"" ).toCharArray();
+	}
+
+	//
+	// Attributes
+	//
+
+	/**
+	 * The unescaped string.
+	 */
+	public final String value;
+
+	/**
+	 * The escaped string, including the quotes.
+	 * 
+	 * @return The chars (do not modify)
+	 */
+	public char[] getChars()
+	{
+		return chars;
+	}
+
+	/**
+	 * The escaped string, including the quotes, encoded in UTF-8. Encoded on
+	 * first use.
+	 * 
+	 * @return The bytes (do not modify)
+	 */
+	public byte[] getBytes()
+	{
+		byte[] bytes = this.bytes;
+		if( bytes == null )
+			// Racing threads might encode more than once, which is harmless
+			this.bytes = bytes = new String( chars ).getBytes( UTF8 );
+		return bytes;
+	}
+
+	//
+	// Object
+	//
+
+	@Override
+	public String toString()
+	{
+		return value;
+	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	private static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+	/**
+	 * Must be a power of 2.
+	 */
+	private static final int CACHE_SIZE = 1024;
+
+	private static final PreEncodedString[] cache = new PreEncodedString[CACHE_SIZE];
+
+	private final char[] chars;
+
+	private volatile byte[] bytes;
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright 2010-2017 Three Crickets LLC.
+ * <p>
+ * The contents of this file are subject to the terms of the Mozilla Public
+ * License version 1.1: http://www.mozilla.org/MPL/MPL-1.1.html
+ * <p>
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly from Three Crickets
+ * at http://threecrickets.com/
+ */
+
+package com.threecrickets.jvm.json.util;
+
+import java.nio.charset.Charset;
+
+import com.threecrickets.jvm.json.JsonDecoder;
+import com.threecrickets.jvm.json.JsonSyntaxError;
+import com.threecrickets.jvm.json.internal.StructuralScanner;
+
+/**
+ * Already-serialized JSON text that is embedded verbatim during encoding,
+ * without being decoded and re-encoded. Note that the text is not re-indented
+ * when encoding in expanded mode.
+ * <p>
+ * Unless created via {@link #validate(CharSequence)}, the text is trusted to
+ * be a single, valid JSON value.
+ * 
+ * @author Tal Liron
+ * @see JsonDecoder#setRawKeys(java.util.Collection)
+ */
+public class RawJson
+{
+	//
+	// Static operations
+	//
+
+	/**
+	 * Creates an instance after checking that the text is a single, valid
+	 * JSON value. The check is a cheap structural scan that does not create
+	 * any values.
+	 * 
+	 * @param text
+	 *        The JSON text
+	 * @return The raw JSON
+	 * @throws JsonSyntaxError
+	 *         In case of a JSON syntax error
+	 */
+	public static RawJson validate( CharSequence text ) throws JsonSyntaxError
+	{
+		int length = text.length();
+		int end = StructuralScanner.skipValue( text, 0, length );
+		if( StructuralScanner.skipWhitespace( text, end, length ) != length )
+			throw new JsonSyntaxError( "Unexpected text after value", 1, end + 1 );
+		return new RawJson( text );
+	}
+
+	//
+	// Construction
+	//
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param text
+	 *        The JSON text
+	 */
+	public RawJson( CharSequence text )
+	{
+		this.text = text;
+		bytes = null;
+	}
+
+	/**
+	 * Constructor. The bytes are decoded on demand.
+	 * 
+	 * @param bytes
+	 *        The JSON text as UTF-8 (will not be copied, so do not modify)
+	 */
+	public RawJson( byte[] bytes )
+	{
+		this.bytes = bytes;
+	}
+
+	//
+	// Attributes
+	//
+
+	/**
+	 * The JSON text. If constructed from bytes, they are decoded on the first
+	 * call.
+	 * 
+	 * @return The JSON text
+	 */
+	public CharSequence getText()
+	{
+		CharSequence text = this.text;
+		if( text == null )
+			this.text = text = new String( bytes, UTF8 );
+		return text;
+	}
+
+	/**
+	 * The JSON text as UTF-8. If constructed from text, it is encoded on the
+	 * first call.
+	 * 
+	 * @return The bytes (do not modify)
+	 */
+	public byte[] getBytes()
+	{
+		byte[] bytes = this.bytes;
+		if( bytes == null )
+			this.bytes = bytes = text.toString().getBytes( UTF8 );
+		return bytes;
+	}
+
+	//
+	// Object
+	//
+
+	@Override
+	public String toString()
+	{
+		return getText().toString();
+	}
+
+	// //////////////////////////////////////////////////////////////////////////
+	// Private
+
+	private static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+	private volatile CharSequence text;
+
+	private volatile byte[] bytes;
+}